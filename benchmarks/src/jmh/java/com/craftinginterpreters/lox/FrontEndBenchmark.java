@@ -0,0 +1,50 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 前端各阶段单独计时：Scanner、Parser、Resolver
+ *
+ * 每个阶段的输入在 Setup 中由前一阶段准备好，只测量当前阶段。
+ */
+@State(Scope.Thread)
+public class FrontEndBenchmark {
+
+    @Param({ "fib", "loop", "methodDispatch", "fieldAccess", "stringBuilding", "mixedComparison" })
+    public String workload;
+
+    private String source;
+    private List<Token> tokens;
+    private List<Stmt> statements;
+    private final Diagnostics diagnostics = new Diagnostics(System.err);
+
+    @Setup
+    public void setUp() {
+        source = LoxWorkloads.source(workload);
+        tokens = LoxWorkloads.scan(source);
+        statements = LoxWorkloads.parse(source);
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        return new Scanner(source, diagnostics).scanTokens();
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens, diagnostics).parse();
+    }
+
+    @Benchmark
+    public int resolve() {
+        Resolver resolver = new Resolver(diagnostics);
+        resolver.resolve(statements);
+        return resolver.resolvedLocals;
+    }
+}
@@ -0,0 +1,52 @@
+package com.craftinginterpreters.lox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 解释执行与端到端耗时
+ *
+ * interpret 只测量执行已编译的程序（复用同一个 Interpreter 的全局变量）；
+ * runCompiled 每次在新的 Interpreter 中执行同一个 CompiledScript，即"编译一次、多次执行"的单次成本；
+ * endToEnd 从源码开始，依次经过扫描、解析、resolve 和执行，每次使用新的 Interpreter。
+ */
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+
+    @Param({ "fib", "loop", "methodDispatch", "fieldAccess", "stringBuilding", "mixedComparison" })
+    public String workload;
+
+    private String source;
+    private CompiledScript script;
+    private Interpreter interpreter;
+
+    @Setup
+    public void setUp() {
+        source = LoxWorkloads.source(workload);
+        script = LoxWorkloads.compile(source);
+        interpreter = new Interpreter();
+    }
+
+    @Benchmark
+    public Object interpret() {
+        interpreter.interpret(script);
+        return LoxWorkloads.result(interpreter);
+    }
+
+    @Benchmark
+    public Object runCompiled() {
+        Interpreter fresh = new Interpreter();
+        fresh.interpret(script);
+        return LoxWorkloads.result(fresh);
+    }
+
+    @Benchmark
+    public Object endToEnd() {
+        Interpreter fresh = new Interpreter();
+        fresh.interpret(LoxWorkloads.compile(source));
+        return LoxWorkloads.result(fresh);
+    }
+}
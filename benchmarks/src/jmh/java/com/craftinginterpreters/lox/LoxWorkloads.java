@@ -0,0 +1,172 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * 基准测试使用的 Lox 脚本
+ *
+ * 每个脚本把最终结果写入全局变量 result，基准方法读出后交给 Blackhole，
+ * 避免使用 print 把输出开销混进测量结果。
+ */
+final class LoxWorkloads {
+    static final String FIB = """
+            fun fib(n) {
+              if (n < 2) return n;
+              return fib(n - 1) + fib(n - 2);
+            }
+            var result = fib(20);
+            """;
+
+    static final String LOOP = """
+            var sum = 0;
+            for (var i = 0; i < 20000; i = i + 1) {
+              if (i / 2 > 100) sum = sum + i; else sum = sum - 1;
+            }
+            var result = sum;
+            """;
+
+    static final String METHOD_DISPATCH = """
+            class Named { name() { return "n"; } }
+            class Walker { walk(n) { return n + 1; } }
+            class Swimmer { swim(n) { return n + 2; } }
+            class Animal < Named, Walker { describe() { return this.name(); } }
+            class Duck < Animal, Swimmer {
+              step(n) { return this.swim(this.walk(n)); }
+              walk(n) { return super.walk(n) + 1; }
+            }
+            var duck = Duck();
+            var n = 0;
+            for (var i = 0; i < 5000; i = i + 1) {
+              n = duck.step(n);
+              duck.describe();
+            }
+            var result = n;
+            """;
+
+    static final String FIELD_ACCESS = """
+            class Point {
+              init(x, y) { this.x = x; this.y = y; }
+            }
+            var p = Point(0, 0);
+            for (var i = 0; i < 10000; i = i + 1) {
+              p.x = p.x + 1;
+              p.y = p.x * 2 - p.y;
+            }
+            var result = p.x + p.y;
+            """;
+
+    static final String STRING_BUILDING = """
+            var s = "";
+            for (var i = 0; i < 2000; i = i + 1) {
+              s = s + "item " + i + ", ";
+            }
+            var result = s < "z";
+            """;
+
+    static final String MIXED_COMPARISON = """
+            var values = 0;
+            for (var i = 0; i < 5000; i = i + 1) {
+              if ("42" < i) values = values + 1;
+              if (true <= i) values = values + 1;
+              if ("abc" > i) values = values + 1;
+              if (nil < i) values = values + 1;
+              if ("b" > "a") values = values + 1;
+            }
+            var result = values;
+            """;
+
+    // 并行 map/reduce 基准的公共定义：2000 个元素，每个元素做 500 次迭代的计算
+    static final String PARALLEL_SETUP = """
+            fun work(x) {
+              var s = 0;
+              var i = 0;
+              while (i < 500) { s = s + i * x; i = i + 1; }
+              return s;
+            }
+            fun add(a, b) { return a + b; }
+            var xs = array();
+            for (var i = 0; i < 2000; i = i + 1) push(xs, i);
+            """;
+
+    // 与 PARALLEL_MAP 等价的顺序 while 循环
+    static final String SEQUENTIAL_MAP = """
+            var ys = array();
+            var i = 0;
+            while (i < len(xs)) { push(ys, work(i)); i = i + 1; }
+            var result = len(ys);
+            """;
+
+    static final String PARALLEL_MAP = """
+            var result = len(parallelMap(xs, work));
+            """;
+
+    static final String PARALLEL_MAP_REDUCE = """
+            var result = parallelReduce(parallelMap(xs, work), add, 0);
+            """;
+
+    static final String VECTOR_SETUP = """
+            var xs = array();
+            var ys = array();
+            for (var i = 0; i < 10000; i = i + 1) { push(xs, i * 0.5); push(ys, 1 - i * 0.25); }
+            """;
+
+    // 与 NATIVE_DOT 等价的 Lox 循环
+    static final String LOOP_DOT = """
+            var result = 0;
+            for (var i = 0; i < len(xs); i = i + 1) result = result + xs[i] * ys[i];
+            """;
+
+    static final String NATIVE_DOT = """
+            var result = dot(xs, ys);
+            """;
+
+    private LoxWorkloads() {
+    }
+
+    static String source(String name) {
+        switch (name) {
+            case "fib":
+                return FIB;
+            case "loop":
+                return LOOP;
+            case "methodDispatch":
+                return METHOD_DISPATCH;
+            case "fieldAccess":
+                return FIELD_ACCESS;
+            case "stringBuilding":
+                return STRING_BUILDING;
+            case "mixedComparison":
+                return MIXED_COMPARISON;
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + name);
+        }
+    }
+
+    static List<Token> scan(String source) {
+        return new Scanner(source, new Diagnostics(System.err)).scanTokens();
+    }
+
+    static List<Stmt> parse(String source) {
+        Diagnostics diagnostics = new Diagnostics(System.err);
+        List<Stmt> statements = new Parser(new Scanner(source, diagnostics).scanTokens(), diagnostics).parse();
+        if (diagnostics.hadError) {
+            throw new IllegalStateException("Workload has a syntax error.");
+        }
+        return statements;
+    }
+
+    static CompiledScript compile(String source) {
+        CompiledScript script = CompiledScript.compile(source, System.err);
+        if (script == null) {
+            throw new IllegalStateException("Workload has a compile error.");
+        }
+        return script;
+    }
+
+    /**
+     * 读取脚本写入的全局变量 result
+     */
+    static Object result(Interpreter interpreter) {
+        return interpreter.globals.get(new Token(TokenType.IDENTIFIER, "result", null, 0));
+    }
+}
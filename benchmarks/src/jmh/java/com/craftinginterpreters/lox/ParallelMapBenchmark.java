@@ -0,0 +1,65 @@
+package com.craftinginterpreters.lox;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * parallelMap / parallelReduce 随线程数的扩展情况
+ *
+ * 每个 parallelism 使用独立的 ForkJoinPool，与 sequentialLoop（同样的逐元素计算写成
+ * while 循环，不受 parallelism 影响）对比即得加速比。核数少于 parallelism 时结果没有意义。
+ *
+ * 运行：./gradlew :benchmarks:jmh -PjmhIncludes=ParallelMap
+ */
+@State(Scope.Benchmark)
+public class ParallelMapBenchmark {
+
+    @Param({ "1", "2", "4", "8" })
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private Interpreter interpreter;
+    private CompiledScript sequentialMap;
+    private CompiledScript parallelMap;
+    private CompiledScript parallelMapReduce;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(parallelism);
+        interpreter = new Interpreter();
+        interpreter.forkJoinPool = pool;
+        interpreter.interpret(LoxWorkloads.compile(LoxWorkloads.PARALLEL_SETUP));
+        sequentialMap = LoxWorkloads.compile(LoxWorkloads.SEQUENTIAL_MAP);
+        parallelMap = LoxWorkloads.compile(LoxWorkloads.PARALLEL_MAP);
+        parallelMapReduce = LoxWorkloads.compile(LoxWorkloads.PARALLEL_MAP_REDUCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object sequentialLoop() {
+        interpreter.interpret(sequentialMap);
+        return LoxWorkloads.result(interpreter);
+    }
+
+    @Benchmark
+    public Object parallelMap() {
+        interpreter.interpret(parallelMap);
+        return LoxWorkloads.result(interpreter);
+    }
+
+    @Benchmark
+    public Object parallelMapReduce() {
+        interpreter.interpret(parallelMapReduce);
+        return LoxWorkloads.result(interpreter);
+    }
+}
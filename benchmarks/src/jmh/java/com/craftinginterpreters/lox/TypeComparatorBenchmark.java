@@ -0,0 +1,76 @@
+package com.craftinginterpreters.lox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * TypeComparator 各类型组合的比较开销
+ *
+ * 覆盖比较规则中的每一种类型组合（nil、boolean、number、string），
+ * 以及数字字符串、LoxRope 这两种字符串形态。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TypeComparatorBenchmark {
+
+    @Param({
+            "nil-nil", "nil-boolean", "nil-number", "nil-string",
+            "boolean-boolean", "boolean-number", "boolean-string",
+            "number-number", "number-string", "number-numericString",
+            "string-string", "numericString-numericString", "rope-string"
+    })
+    public String pair;
+
+    private Object left;
+    private Object right;
+
+    @Setup
+    public void setUp() {
+        String[] types = pair.split("-");
+        left = sample(types[0], 0);
+        right = sample(types[1], 1);
+    }
+
+    private static Object sample(String type, int which) {
+        switch (type) {
+            case "nil":
+                return null;
+            case "boolean":
+                return which == 0 ? Boolean.FALSE : Boolean.TRUE;
+            case "number":
+                return which == 0 ? 41.5 : 42.0;
+            case "string":
+                return which == 0 ? "apple" : "banana";
+            case "numericString":
+                return which == 0 ? "123.5" : "456";
+            case "rope":
+                return LoxRope.concat("x".repeat(40), "y".repeat(40));
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    @Benchmark
+    public boolean less() {
+        return TypeComparator.less(left, right);
+    }
+
+    @Benchmark
+    public boolean greaterEqual() {
+        return TypeComparator.greaterEqual(left, right);
+    }
+
+    @Benchmark
+    public int compare() {
+        return TypeComparator.compare(left, right);
+    }
+}
@@ -0,0 +1,96 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 数值内核：Vector API 实现与标量实现对比，以及 dot() 与等价的 Lox 循环对比
+ *
+ * 用 -Psimd 构建时 jmh 任务带有 --add-modules jdk.incubator.vector，NumericKernels.INSTANCE
+ * 为 SimdKernels；scalar* 基准直接使用 ScalarKernels。不加 -Psimd 时两组基准都是标量实现。
+ *
+ * 运行：./gradlew :benchmarks:jmh -Psimd -PjmhIncludes=VectorKernel
+ */
+@State(Scope.Benchmark)
+public class VectorKernelBenchmark {
+
+    @Param({ "1000", "1000000" })
+    public int length;
+
+    private final NumericKernels scalar = new ScalarKernels();
+    private final NumericKernels selected = NumericKernels.INSTANCE;
+    private double[] a;
+    private double[] b;
+    private double[] out;
+
+    private Interpreter interpreter;
+    private CompiledScript loopDot;
+    private CompiledScript nativeDot;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        a = new double[length];
+        b = new double[length];
+        out = new double[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = random.nextDouble();
+            b[i] = random.nextDouble();
+        }
+        interpreter = new Interpreter();
+        interpreter.interpret(LoxWorkloads.compile(LoxWorkloads.VECTOR_SETUP));
+        loopDot = LoxWorkloads.compile(LoxWorkloads.LOOP_DOT);
+        nativeDot = LoxWorkloads.compile(LoxWorkloads.NATIVE_DOT);
+    }
+
+    @Benchmark
+    public double scalarDot() {
+        return scalar.dot(a, b, length);
+    }
+
+    @Benchmark
+    public double simdDot() {
+        return selected.dot(a, b, length);
+    }
+
+    @Benchmark
+    public double[] scalarAdd() {
+        scalar.add(a, b, out, length);
+        return out;
+    }
+
+    @Benchmark
+    public double[] simdAdd() {
+        selected.add(a, b, out, length);
+        return out;
+    }
+
+    @Benchmark
+    public double scalarMax() {
+        return scalar.max(a, length);
+    }
+
+    @Benchmark
+    public double simdMax() {
+        return selected.max(a, length);
+    }
+
+    // 以下两个基准与 length 无关，固定为 VECTOR_SETUP 中的 10000 个元素
+
+    @Benchmark
+    public Object loxLoopDot() {
+        interpreter.interpret(loopDot);
+        return LoxWorkloads.result(interpreter);
+    }
+
+    @Benchmark
+    public Object loxNativeDot() {
+        interpreter.interpret(nativeDot);
+        return LoxWorkloads.result(interpreter);
+    }
+}
@@ -0,0 +1,136 @@
+package com.jsparser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * jsparser 前端（Scanner + Parser）的吞吐量扩展曲线
+ *
+ * 对每种源码形态、每个规模（默认 1KB 到 100MB）分别测量：
+ * - 词法分析：MB/s、tokens/s、每 MB 源码分配的字节数
+ * - 语法分析：MB/s、tokens/s、每 MB 源码分配的字节数
+ * - 扫描加解析过程中的堆内存峰值
+ *
+ * 小规模输入会重复运行直到累计时间足够长，取平均值；大规模输入运行次数更少。
+ * 这里不使用 JMH，因为 JMH 报告的是每次操作的耗时，无法给出堆峰值和按源码字节归一化的指标。
+ *
+ * 用法：gradle :benchmarks:jsParseCurve [-PjsSizes=1K,1M,100M] [-PjsShapes=nesting,literals]
+ */
+public final class JsParseThroughput {
+    private static final String[] DEFAULT_SIZES = { "1K", "10K", "100K", "1M", "10M", "100M" };
+    private static final long MIN_MEASURE_NANOS = 1_000_000_000L;
+    private static final double MB = 1024.0 * 1024.0;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args[0].split(",") : DEFAULT_SIZES;
+        String[] shapes = args.length > 1 ? args[1].split(",") : JsSourceGenerator.SHAPES;
+
+        System.out.printf("%-12s %8s %10s %12s %12s %10s %12s %12s %10s%n",
+                "shape", "size", "lex MB/s", "lex tok/s", "lex B/MB",
+                "parse MB/s", "parse tok/s", "parse B/MB", "peak MB");
+        for (String shape : shapes) {
+            for (String size : sizes) {
+                measure(shape.trim(), parseSize(size.trim()), size.trim());
+            }
+        }
+    }
+
+    private static void measure(String shape, int bytes, String label) {
+        String source = JsSourceGenerator.generate(shape, bytes);
+        double megabytes = source.length() / MB;
+
+        // 预热：让扫描器和解析器完成 JIT 编译，大输入只运行一次
+        int warmups = (int) Math.max(1, Math.min(50, 5_000_000L / source.length()));
+        List<Token> tokens = null;
+        for (int i = 0; i < warmups; i++) {
+            tokens = new Scanner(source).scanTokens();
+            parse(tokens);
+        }
+        int tokenCount = tokens.size();
+
+        // 词法分析
+        int runs = 0;
+        long allocated = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            tokens = new Scanner(source).scanTokens();
+            allocated += threads.getCurrentThreadAllocatedBytes() - before;
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_MEASURE_NANOS && runs < 1000);
+        double lexSeconds = elapsed / 1e9 / runs;
+        double lexAllocPerMb = allocated / (double) runs / megabytes;
+
+        // 语法分析（输入为已扫描好的 Token 列表）
+        runs = 0;
+        allocated = 0;
+        start = System.nanoTime();
+        do {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            parse(tokens);
+            allocated += threads.getCurrentThreadAllocatedBytes() - before;
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_MEASURE_NANOS && runs < 1000);
+        double parseSeconds = elapsed / 1e9 / runs;
+        double parseAllocPerMb = allocated / (double) runs / megabytes;
+
+        // 堆峰值：只保留源码本身，清空其余对象后重置各内存池的峰值，再完整扫描解析一次
+        tokens = null;
+        System.gc();
+        resetPeakUsage();
+        List<Stmt> program = parse(new Scanner(source).scanTokens());
+        long peak = peakHeapUsage();
+
+        System.out.printf("%-12s %8s %10.1f %12.0f %12.0f %10.1f %12.0f %12.0f %10.1f%s%n",
+                shape, label,
+                megabytes / lexSeconds, tokenCount / lexSeconds, lexAllocPerMb,
+                megabytes / parseSeconds, tokenCount / parseSeconds, parseAllocPerMb,
+                peak / MB, program == null ? "  (parse error)" : "");
+    }
+
+    private static List<Stmt> parse(List<Token> tokens) {
+        Lox.hadError = false;
+        return new Parser(tokens).parse();
+    }
+
+    private static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * 各堆内存池峰值之和（各池峰值不一定同时出现，结果是上界）
+     */
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static int parseSize(String size) {
+        String upper = size.toUpperCase();
+        int multiplier = 1;
+        if (upper.endsWith("K")) {
+            multiplier = 1024;
+        } else if (upper.endsWith("M")) {
+            multiplier = 1024 * 1024;
+        }
+        String digits = multiplier == 1 ? upper : upper.substring(0, upper.length() - 1);
+        return Integer.parseInt(digits) * multiplier;
+    }
+}
@@ -0,0 +1,161 @@
+package com.jsparser;
+
+import java.util.Random;
+
+/**
+ * 合成 ES5 源码生成器，用于前端吞吐量测试
+ *
+ * 按目标字节数重复生成代码单元，每种形态针对前端的一类压力：
+ * - nesting：函数表达式、if/while、括号、对象字面量的深层嵌套（递归下降的调用深度）
+ * - expressions：很长的二元表达式链，混合成员访问和调用
+ * - functions：大量短小的函数（函数声明与函数表达式交替）
+ * - literals：大型对象字面量，值为数字、字符串和嵌套对象
+ *
+ * 只生成当前 Parser 能接受的语法：if/while 的循环体不使用花括号块，
+ * 数组字面量尚未被 PrimaryExpression 支持，因此 literals 形态只生成对象字面量。
+ * 同样的参数总是生成同样的源码。
+ */
+final class JsSourceGenerator {
+    static final String[] SHAPES = { "nesting", "expressions", "functions", "literals" };
+
+    private static final int NESTING_DEPTH = 24;
+    private static final int CHAIN_LENGTH = 200;
+    private static final String[] OPERATORS = { "+", "-", "*", "/", "%", "<", ">=", "===", "!=", "&&", "||" };
+
+    private final Random random = new Random(42);
+    private final StringBuilder out;
+    private int unit = 0;
+
+    private JsSourceGenerator(int targetBytes) {
+        this.out = new StringBuilder(targetBytes + 1024);
+    }
+
+    /**
+     * 生成不小于 targetBytes 字节的源码（全部为 ASCII，字符数即字节数）
+     */
+    static String generate(String shape, int targetBytes) {
+        JsSourceGenerator generator = new JsSourceGenerator(targetBytes);
+        while (generator.out.length() < targetBytes) {
+            switch (shape) {
+                case "nesting":
+                    generator.nestingUnit();
+                    break;
+                case "expressions":
+                    generator.expressionUnit();
+                    break;
+                case "functions":
+                    generator.functionUnit();
+                    break;
+                case "literals":
+                    generator.literalUnit();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown shape: " + shape);
+            }
+            generator.unit++;
+        }
+        return generator.out.toString();
+    }
+
+    private void nestingUnit() {
+        out.append("var n").append(unit).append(" = ");
+        for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+            out.append("function (a").append(depth).append(") {\n");
+            out.append("if (a").append(depth).append(" > ").append(depth).append(") ");
+            out.append("while (a").append(depth).append(" < 10) a").append(depth).append(" += ");
+            appendNestedGroup(depth % 6);
+            out.append(";\n");
+            out.append("var o = ");
+            appendNestedObject(depth % 4);
+            out.append(";\nreturn ");
+        }
+        out.append("a0");
+        for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+            out.append(";\n}");
+        }
+        out.append(";\n");
+    }
+
+    private void appendNestedGroup(int depth) {
+        for (int i = 0; i < depth; i++)
+            out.append("(1 + ");
+        out.append("x");
+        for (int i = 0; i < depth; i++)
+            out.append(")");
+    }
+
+    private void appendNestedObject(int depth) {
+        if (depth == 0) {
+            out.append(random.nextInt(1000));
+            return;
+        }
+        out.append("{ k: ");
+        appendNestedObject(depth - 1);
+        out.append(", s: \"v").append(depth).append("\" }");
+    }
+
+    private void expressionUnit() {
+        out.append("var e").append(unit).append(" = ");
+        appendOperand();
+        for (int i = 1; i < CHAIN_LENGTH; i++) {
+            out.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+            appendOperand();
+        }
+        out.append(";\n");
+    }
+
+    private void appendOperand() {
+        switch (random.nextInt(5)) {
+            case 0:
+                out.append(random.nextInt(100000));
+                break;
+            case 1:
+                out.append("\"s").append(random.nextInt(100)).append('"');
+                break;
+            case 2:
+                out.append("obj.field").append(random.nextInt(20));
+                break;
+            case 3:
+                out.append("fn").append(random.nextInt(20)).append("(x, ").append(random.nextInt(10)).append(')');
+                break;
+            default:
+                out.append("(y").append(random.nextInt(10)).append(" - 1)");
+                break;
+        }
+    }
+
+    private void functionUnit() {
+        // 函数声明目前只支持空参数列表，带参数的函数用函数表达式生成
+        if (unit % 2 == 0) {
+            out.append("function f").append(unit).append("() {\n");
+            out.append("  var a = x, b = y;\n");
+        } else {
+            out.append("var f").append(unit).append(" = function (a, b) {\n");
+        }
+        out.append("  var c = a + b * ").append(random.nextInt(100)).append(";\n");
+        out.append("  if (c > ").append(random.nextInt(1000)).append(") return c;\n");
+        out.append("  return helper(c, \"f").append(unit).append("\");\n");
+        out.append(unit % 2 == 0 ? "}\n" : "};\n");
+    }
+
+    private void literalUnit() {
+        out.append("var data").append(unit).append(" = {\n");
+        for (int i = 0; i < 100; i++) {
+            out.append("  key").append(i).append(": ");
+            switch (i % 3) {
+                case 0:
+                    out.append(random.nextInt(1000000)).append('.').append(random.nextInt(100));
+                    break;
+                case 1:
+                    out.append("\"value ").append(random.nextInt(10000)).append('"');
+                    break;
+                default:
+                    out.append("{ id: ").append(i).append(", name: \"n").append(i)
+                            .append("\", inner: { flag: true, size: ").append(random.nextInt(64)).append(" } }");
+                    break;
+            }
+            out.append(",\n");
+        }
+        out.append("  last: null\n};\n");
+    }
+}
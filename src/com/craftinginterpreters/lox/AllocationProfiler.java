@@ -0,0 +1,218 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分配统计模式（--allocations）
+ *
+ * 每次 Lox 调用（函数、匿名函数、类构造、原生函数）和每条顶层语句前后读取
+ * 当前线程的累计分配字节数（ThreadMXBean.getCurrentThreadAllocatedBytes），
+ * 把差值归到被调用的函数上：
+ * - self：函数自身执行期间的分配，不含其中嵌套调用的部分
+ * - total：包含嵌套调用（递归时只计最外层一次）
+ *
+ * 同时按调用点（Expr.Call，或顶层语句）统计创建的 Environment、LoxInstance
+ * 和绑定方法的个数，对象归到创建时最内层的调用点上。
+ *
+ * 字节数来自 JVM 的 TLAB 统计，包含解释器自身的全部分配（装箱的 Double、参数列表等），
+ * 用来定位"哪里在分配"，而不是精确的对象大小。
+ */
+class AllocationProfiler {
+    private static final int REPORT_LIMIT = 20;
+
+    /**
+     * 一个函数或一个调用点的统计
+     */
+    private static final class Row {
+        final String label;
+        long calls;
+        long selfBytes;
+        long totalBytes;
+        long environments;
+        long instances;
+        long boundMethods;
+        int active;
+
+        Row(String label) {
+            this.label = label;
+        }
+    }
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean supported;
+
+    private final Map<Object, Row> functions = new IdentityHashMap<>();
+    private final Map<Object, Row> sites = new IdentityHashMap<>();
+    private final Row script = new Row("<script>");
+
+    // 当前调用栈，下标 0 为顶层语句
+    private Row[] frameFunctions = new Row[256];
+    private Row[] frameSites = new Row[256];
+    private long[] startBytes = new long[256];
+    private long[] childBytes = new long[256];
+    private int depth = 0;
+
+    AllocationProfiler() {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        supported = threads.isThreadAllocatedMemorySupported();
+        if (supported)
+            threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * 开始执行一条顶层语句，按语句第一个 token 的行号标记，与函数和调用处的行号一致
+     */
+    void enterStatement(Stmt stmt) {
+        Row site = sites.computeIfAbsent(stmt,
+                key -> new Row("line " + ((Stmt) key).line + " top-level " + key.getClass().getSimpleName()));
+        push(script, site);
+    }
+
+    /**
+     * 开始一次 Lox 调用
+     *
+     * @param callee 被调用的对象
+     * @param site   调用表达式
+     */
+    void enterCall(LoxCallable callee, Expr.Call site) {
+        Row function = functions.computeIfAbsent(frameKey(callee), AllocationProfiler::newFunctionRow);
+        Row siteRow = sites.computeIfAbsent(site, key -> new Row(siteLabel((Expr.Call) key)));
+        push(function, siteRow);
+    }
+
+    /**
+     * 结束最近一次 enterStatement / enterCall（包括以 RuntimeError 退出的情况）
+     */
+    void exit() {
+        int top = --depth;
+        long allocated = allocatedBytes() - startBytes[top];
+        Row function = frameFunctions[top];
+        Row site = frameSites[top];
+
+        function.selfBytes += allocated - childBytes[top];
+        if (--function.active == 0)
+            function.totalBytes += allocated;
+        if (--site.active == 0)
+            site.totalBytes += allocated;
+        if (top > 0)
+            childBytes[top - 1] += allocated;
+    }
+
+    void environment() {
+        if (depth > 0)
+            frameSites[depth - 1].environments++;
+    }
+
+    void instance() {
+        if (depth > 0)
+            frameSites[depth - 1].instances++;
+    }
+
+    /**
+     * 绑定方法会同时创建一个存放 this 的环境
+     */
+    void boundMethod() {
+        if (depth > 0) {
+            frameSites[depth - 1].boundMethods++;
+            frameSites[depth - 1].environments++;
+        }
+    }
+
+    private void push(Row function, Row site) {
+        if (depth == frameFunctions.length)
+            grow();
+        function.calls++;
+        function.active++;
+        site.calls++;
+        site.active++;
+        frameFunctions[depth] = function;
+        frameSites[depth] = site;
+        childBytes[depth] = 0;
+        startBytes[depth] = allocatedBytes();
+        depth++;
+    }
+
+    private long allocatedBytes() {
+        return supported ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private void grow() {
+        int capacity = frameFunctions.length * 2;
+        frameFunctions = Arrays.copyOf(frameFunctions, capacity);
+        frameSites = Arrays.copyOf(frameSites, capacity);
+        startBytes = Arrays.copyOf(startBytes, capacity);
+        childBytes = Arrays.copyOf(childBytes, capacity);
+    }
+
+    /**
+     * 同一个函数的每次绑定都会产生新的 LoxFunction，因此按声明节点归并
+     */
+    private static Object frameKey(LoxCallable callee) {
+        if (callee instanceof LoxFunction)
+            return ((LoxFunction) callee).declaration;
+        if (callee instanceof LoxLambda)
+            return ((LoxLambda) callee).declaration;
+        return callee;
+    }
+
+    private static Row newFunctionRow(Object key) {
+        if (key instanceof LoxClass)
+            return new Row(((LoxClass) key).name + "() (constructor)");
+        return new Row(SamplingProfiler.label(key));
+    }
+
+    private static String siteLabel(Expr.Call call) {
+        String callee;
+        if (call.callee instanceof Expr.Variable) {
+            callee = ((Expr.Variable) call.callee).name.lexeme;
+        } else if (call.callee instanceof Expr.Get) {
+            callee = "." + ((Expr.Get) call.callee).name.lexeme;
+        } else if (call.callee instanceof Expr.Super) {
+            callee = "super." + ((Expr.Super) call.callee).method.lexeme;
+        } else {
+            callee = "<expr>";
+        }
+        return "line " + call.paren.line + " " + callee + "()";
+    }
+
+    /**
+     * 输出按函数和按调用点汇总的分配情况
+     */
+    void report(PrintStream out) {
+        if (!supported)
+            out.println("Thread allocation accounting is not supported by this JVM; byte columns are 0.");
+
+        List<Row> byFunction = new ArrayList<>(functions.values());
+        byFunction.add(script);
+        byFunction.sort((a, b) -> Long.compare(b.selfBytes, a.selfBytes));
+
+        out.println();
+        out.println("=== Allocations by function ===");
+        out.printf("%12s %12s %10s  %s%n", "self KB", "total KB", "calls", "function");
+        for (int i = 0; i < Math.min(REPORT_LIMIT, byFunction.size()); i++) {
+            Row row = byFunction.get(i);
+            out.printf("%12.1f %12.1f %10d  %s%n", row.selfBytes / 1024.0, row.totalBytes / 1024.0,
+                    row.calls, row.label);
+        }
+
+        List<Row> bySite = new ArrayList<>(sites.values());
+        bySite.sort((a, b) -> Long.compare(b.totalBytes, a.totalBytes));
+
+        out.println();
+        out.println("=== Allocations by call site ===");
+        out.printf("%12s %10s %12s %10s %12s  %s%n",
+                "total KB", "calls", "environments", "instances", "bound methods", "site");
+        for (int i = 0; i < Math.min(REPORT_LIMIT, bySite.size()); i++) {
+            Row row = bySite.get(i);
+            out.printf("%12.1f %10d %12d %10d %12d  %s%n", row.totalBytes / 1024.0, row.calls,
+                    row.environments, row.instances, row.boundMethods, row.label);
+        }
+    }
+
+}
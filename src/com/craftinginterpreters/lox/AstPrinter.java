@@ -5,6 +5,11 @@ class AstPrinter implements Expr.Visitor<String> {
         return expr.accept(this);
     }
 
+    @Override
+    public String visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        return parenthesize("array", expr.elements.toArray(new Expr[0]));
+    }
+
     @Override
     public String visitAssignExpr(Expr.Assign expr) {
         return "";
@@ -37,6 +42,16 @@ class AstPrinter implements Expr.Visitor<String> {
         return parenthesize("group", expr.expression);
     }
 
+    @Override
+    public String visitIndexExpr(Expr.Index expr) {
+        return parenthesize("index", expr.object, expr.index);
+    }
+
+    @Override
+    public String visitIndexSetExpr(Expr.IndexSet expr) {
+        return parenthesize("index=", expr.object, expr.index, expr.value);
+    }
+
     @Override
     public String visitLiteralExpr(Expr.Literal expr) {
         if (expr.value == null)
@@ -199,6 +199,17 @@ class AstTreePrinter implements Expr.Visitor<String>, Stmt.Visitor<String> {
 
     // ==================== Expr Visitors ====================
 
+    @Override
+    public String visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Array\n");
+        for (int i = 0; i < expr.elements.size(); i++) {
+            boolean isLast = (i == expr.elements.size() - 1);
+            builder.append(printExpr(expr.elements.get(i), currentPrefix, isLast));
+        }
+        return builder.toString();
+    }
+
     @Override
     public String visitAssignExpr(Expr.Assign expr) {
         StringBuilder builder = new StringBuilder();
@@ -269,6 +280,30 @@ class AstTreePrinter implements Expr.Visitor<String>, Stmt.Visitor<String> {
         return builder.toString();
     }
 
+    @Override
+    public String visitIndexExpr(Expr.Index expr) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Index\n");
+        builder.append(currentPrefix).append(BRANCH).append("object:\n");
+        builder.append(printExpr(expr.object, currentPrefix + VERTICAL, true));
+        builder.append(currentPrefix).append(LAST_BRANCH).append("index:\n");
+        builder.append(printExpr(expr.index, currentPrefix + SPACE, true));
+        return builder.toString();
+    }
+
+    @Override
+    public String visitIndexSetExpr(Expr.IndexSet expr) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("IndexSet\n");
+        builder.append(currentPrefix).append(BRANCH).append("object:\n");
+        builder.append(printExpr(expr.object, currentPrefix + VERTICAL, true));
+        builder.append(currentPrefix).append(BRANCH).append("index:\n");
+        builder.append(printExpr(expr.index, currentPrefix + VERTICAL, true));
+        builder.append(currentPrefix).append(LAST_BRANCH).append("value:\n");
+        builder.append(printExpr(expr.value, currentPrefix + SPACE, true));
+        return builder.toString();
+    }
+
     @Override
     public String visitLiteralExpr(Expr.Literal expr) {
         if (expr.value == null) {
@@ -0,0 +1,197 @@
+package com.craftinginterpreters.lox;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 批量回归模式（jlox --batch &lt;目录或通配符&gt; [--update-golden]）
+ *
+ * 把匹配到的脚本分发到工作线程池并发执行，每个脚本使用自己的 LoxIsolate，
+ * 标准输出和标准错误按 jlox script 2&gt;&amp;1 的顺序捕获（包括语法树），
+ * 与脚本旁的黄金文件 &lt;script&gt;.expected 逐行比较。每个脚本最多运行 20 秒，
+ * 超时以运行时错误结束（输出与黄金文件比较时自然失败）。
+ *
+ * 参数为目录时匹配其中的 test*.txt；也可以直接给出通配符，例如 "tests/*.lox"。
+ * --update-golden 把本次输出写为新的黄金文件。
+ */
+final class BatchRunner {
+    private static final String DEFAULT_PATTERN = "test*.txt";
+    private static final String GOLDEN_SUFFIX = ".expected";
+    private static final long TIMEOUT_SECONDS = 20;
+
+    private enum Outcome {
+        PASS, FAIL, NEW, UPDATED, TIMEOUT
+    }
+
+    private static final class Result {
+        final Path script;
+        Outcome outcome;
+        int status;
+        long nanos;
+        String detail = "";
+
+        Result(Path script) {
+            this.script = script;
+        }
+    }
+
+    private BatchRunner() {
+    }
+
+    /**
+     * @return 0 表示全部通过，1 表示有失败、超时或缺少黄金文件
+     */
+    static int run(String target, boolean updateGolden, PrintStream report) throws IOException {
+        List<Path> scripts = find(target);
+        if (scripts.isEmpty()) {
+            report.println("No scripts match " + target);
+            return 1;
+        }
+
+        int workers = Math.min(scripts.size(), Runtime.getRuntime().availableProcessors());
+        // 工作线程设为守护线程：超时的脚本无法中断，不能阻止进程退出
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "lox-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long started = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Path script : scripts) {
+            futures.add(pool.submit(() -> execute(script, updateGolden)));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < scripts.size(); i++) {
+            results.add(await(futures.get(i), scripts.get(i)));
+        }
+        long wall = System.nanoTime() - started;
+        pool.shutdownNow();
+
+        return report(results, wall, workers, report);
+    }
+
+    private static Result await(Future<Result> future, Path script) {
+        try {
+            // 脚本自身有墙钟预算，这里的等待上限只兜底卡在预算检查之外的情况（如巨大的字符串拼接）
+            return future.get(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            Result result = new Result(script);
+            result.outcome = Outcome.TIMEOUT;
+            result.nanos = TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS * 2);
+            result.detail = "no result after " + TIMEOUT_SECONDS * 2 + " s";
+            return result;
+        } catch (ExecutionException | InterruptedException e) {
+            Result result = new Result(script);
+            result.outcome = Outcome.FAIL;
+            result.detail = "crashed: " + e.getCause();
+            return result;
+        }
+    }
+
+    private static Result execute(Path script, boolean updateGolden) throws IOException {
+        Result result = new Result(script);
+        String source = new String(Files.readAllBytes(script), Charset.defaultCharset());
+
+        long started = System.nanoTime();
+        StringWriter output = new StringWriter();
+        LoxIsolate isolate = new LoxIsolate(output, output);
+        isolate.printAst = true;
+        // 超时的脚本以运行时错误结束，工作线程得以继续处理后面的脚本
+        isolate.setLimits(Long.MAX_VALUE, Duration.ofSeconds(TIMEOUT_SECONDS));
+        result.status = isolate.run(source);
+        result.nanos = System.nanoTime() - started;
+
+        Path golden = script.resolveSibling(script.getFileName() + GOLDEN_SUFFIX);
+        String actual = output.toString();
+        if (updateGolden) {
+            Files.writeString(golden, actual, Charset.defaultCharset());
+            result.outcome = Outcome.UPDATED;
+        } else if (!Files.exists(golden)) {
+            result.outcome = Outcome.NEW;
+            result.detail = "no " + golden.getFileName() + " (run with --update-golden)";
+        } else {
+            String expected = Files.readString(golden, Charset.defaultCharset());
+            result.detail = firstDifference(expected, actual);
+            result.outcome = result.detail.isEmpty() ? Outcome.PASS : Outcome.FAIL;
+        }
+        return result;
+    }
+
+    /**
+     * 第一处不同的行，相同时返回空字符串
+     */
+    private static String firstDifference(String expected, String actual) {
+        if (expected.equals(actual))
+            return "";
+        String[] want = expected.split("\n", -1);
+        String[] got = actual.split("\n", -1);
+        for (int line = 0; line < Math.max(want.length, got.length); line++) {
+            String w = line < want.length ? want[line] : "<end of output>";
+            String g = line < got.length ? got[line] : "<end of output>";
+            if (!w.equals(g))
+                return "line " + (line + 1) + ": expected \"" + w + "\" but got \"" + g + "\"";
+        }
+        return "outputs differ";
+    }
+
+    private static int report(List<Result> results, long wall, int workers, PrintStream out) {
+        long serial = 0;
+        int failed = 0;
+        out.printf("%-8s %10s %6s  %s%n", "result", "time ms", "exit", "script");
+        for (Result result : results) {
+            serial += result.nanos;
+            if (result.outcome != Outcome.PASS && result.outcome != Outcome.UPDATED)
+                failed++;
+            out.printf("%-8s %10.1f %6s  %s%n", result.outcome, result.nanos / 1e6,
+                    result.outcome == Outcome.TIMEOUT ? "-" : String.valueOf(result.status), result.script);
+            if (!result.detail.isEmpty())
+                out.println("         " + result.detail);
+        }
+        out.printf("%n%d scripts, %d failed, %.1f ms wall (%.1f ms summed) on %d workers%n",
+                results.size(), failed, wall / 1e6, serial / 1e6, workers);
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * 目录则匹配其中的 test*.txt，否则把最后一段当作通配符
+     */
+    private static List<Path> find(String target) throws IOException {
+        Path path = Path.of(target);
+        Path directory;
+        String pattern;
+        if (Files.isDirectory(path)) {
+            directory = path;
+            pattern = DEFAULT_PATTERN;
+        } else {
+            directory = path.getParent() != null ? path.getParent() : Path.of(".");
+            pattern = path.getFileName().toString();
+        }
+
+        List<Path> scripts = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, pattern)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && !entry.toString().endsWith(GOLDEN_SUFFIX))
+                    scripts.add(entry);
+            }
+        }
+        scripts.sort(null);
+        return scripts;
+    }
+}
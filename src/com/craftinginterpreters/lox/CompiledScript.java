@@ -0,0 +1,99 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * 编译（扫描、解析、变量解析）一次、可反复执行的脚本
+ *
+ * 变量解析的结果（作用域距离）记录在 AST 节点的 depth 上，而不是解释器里的 Map，
+ * 编译完成后 AST 不再被修改。statements 是 final 字段引用的不可变列表，
+ * 按 final 字段语义，其他线程拿到 CompiledScript 后即可看到完整的 AST，无需额外同步。
+ *
+ * 因此同一个 CompiledScript 可以在多个 LoxIsolate 中执行，包括并发执行：
+ *
+ * <pre>
+ * CompiledScript script = CompiledScript.compile(source, System.err);
+ * for (...)
+ *     executor.submit(() -&gt; script.run(out, err));
+ * </pre>
+ *
+ * 注意：--instrument 模式会给节点编号（Expr.nodeId / Stmt.nodeId），只适用于单次运行。
+ */
+public final class CompiledScript {
+    final List<Stmt> statements;
+    final int resolvedLocals;
+
+    private CompiledScript(List<Stmt> statements, int resolvedLocals) {
+        this.statements = List.copyOf(statements);
+        this.resolvedLocals = resolvedLocals;
+    }
+
+    /**
+     * 编译一段 Lox 源码
+     *
+     * @param source 源码
+     * @param err    编译错误的输出位置
+     * @return 编译结果，有错误时返回 null（错误已输出到 err）
+     */
+    public static CompiledScript compile(String source, PrintStream err) {
+        return compile(source, new Diagnostics(err), null, null);
+    }
+
+    /**
+     * 在一个新的隔离实例（全新的全局变量）中执行
+     *
+     * @return LoxIsolate.OK 或 LoxIsolate.RUNTIME_ERROR
+     */
+    public int run(PrintStream out, PrintStream err) {
+        return new LoxIsolate(out, err).run(this);
+    }
+
+    /**
+     * 编译并记录各阶段的 JFR 事件和 JMX 耗时
+     *
+     * @param metrics 耗时统计，可以为 null
+     * @param astOut  解析后打印 AST 语法树的位置，为 null 时不打印
+     */
+    static CompiledScript compile(String source, Diagnostics diagnostics,
+            InterpreterMetrics metrics, PrintWriter astOut) {
+        LoxEvents.Phase phase = new LoxEvents.Phase();
+        phase.begin();
+        long started = System.nanoTime();
+        Scanner scanner = new Scanner(source, diagnostics);
+        List<Token> tokens = scanner.scanTokens();
+        LoxEvents.endPhase(phase, "scan", tokens.size());
+        if (metrics != null)
+            metrics.scanNanos.add(System.nanoTime() - started);
+
+        phase = new LoxEvents.Phase();
+        phase.begin();
+        started = System.nanoTime();
+        Parser parser = new Parser(tokens, diagnostics);
+        List<Stmt> statements = parser.parse();
+        LoxEvents.endPhase(phase, "parse", statements.size());
+        if (metrics != null)
+            metrics.parseNanos.add(System.nanoTime() - started);
+
+        // 打印 AST 语法树
+        if (astOut != null)
+            astOut.println(new AstTreePrinter().print(statements));
+
+        // Stop if there was a syntax error.
+        if (diagnostics.hadError)
+            return null;
+        phase = new LoxEvents.Phase();
+        phase.begin();
+        started = System.nanoTime();
+        Resolver resolver = new Resolver(diagnostics);
+        resolver.resolve(statements);
+        LoxEvents.endPhase(phase, "resolve", statements.size());
+        if (metrics != null)
+            metrics.resolveNanos.add(System.nanoTime() - started);
+        if (diagnostics.hadError)
+            return null;
+
+        return new CompiledScript(statements, resolver.resolvedLocals);
+    }
+}
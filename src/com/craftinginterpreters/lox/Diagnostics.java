@@ -0,0 +1,68 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * 一次（或一个隔离实例内）执行过程中的错误报告
+ *
+ * 原先由 Lox 的静态方法和静态 hadError / hadRuntimeError 承担，
+ * 同一 JVM 里无法同时运行两个脚本。现在 Scanner、Parser、Resolver、Interpreter
+ * 都向自己所属隔离实例的 Diagnostics 报告错误，输出格式保持不变。
+ */
+final class Diagnostics {
+    private final PrintWriter err;
+    boolean hadError = false;
+    boolean hadRuntimeError = false;
+    // 供嵌入方（javax.script）构造异常：第一条编译错误及其行号、最近一次运行时错误
+    String firstError;
+    int firstErrorLine;
+    RuntimeError lastRuntimeError;
+
+    Diagnostics(PrintStream err) {
+        this(LoxIsolate.writer(err));
+    }
+
+    Diagnostics(PrintWriter err) {
+        this.err = err;
+    }
+
+    void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    void runtimeError(RuntimeError error) {
+        err.println(error.getMessage() +
+                "\n[line " + error.token.line + "]");
+        hadRuntimeError = true;
+        lastRuntimeError = error;
+        LoxEvents.runtimeError(error);
+    }
+
+    private void report(int line, String where,
+            String message) {
+        String text = "[line " + line + "] Error" + where + ": " + message;
+        err.println(text);
+        if (!hadError) {
+            firstError = text;
+            firstErrorLine = line;
+        }
+        hadError = true;
+    }
+
+    void reset() {
+        hadError = false;
+        hadRuntimeError = false;
+        firstError = null;
+        firstErrorLine = 0;
+        lastRuntimeError = null;
+    }
+}
@@ -1,26 +1,51 @@
 package com.craftinginterpreters.lox;
 
-import java.util.HashMap;
-import java.util.Map;
-
 class Environment {
-    private final Map<String, Object> values = new HashMap<>();
+    // 以驻留后的 Symbol 为键，查找只比较引用
+    private final SymbolMap<Object> values;
     final Environment enclosing;
 
+    /**
+     * 全局环境：spawn 出的任务和 parallelMap 的工作线程与主线程共用，变量表允许并发读写
+     */
     Environment() {
+        values = new SymbolMap<>(true);
         enclosing = null;
     }
 
     Environment(Environment enclosing) {
+        values = new SymbolMap<>();
         this.enclosing = enclosing;
     }
 
-    void define(String name, Object value) {
+    void define(Symbol name, Object value) {
         values.put(name, value);
     }
 
+    boolean isDefined(Symbol name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * 删除本层的变量（只用于宿主操作全局变量）
+     */
+    Object remove(Symbol name) {
+        return values.remove(name);
+    }
+
+    /**
+     * 本层所有变量名的快照
+     */
+    Symbol[] names() {
+        return values.keys();
+    }
+
+    int size() {
+        return values.size();
+    }
+
     void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+        ancestor(distance).values.put(name.symbol, value);
     }
 
     Environment ancestor(int distance) {
@@ -32,7 +57,7 @@ class Environment {
         return environment;
     }
 
-    Object getAt(int distance, String name) {
+    Object getAt(int distance, Symbol name) {
         return ancestor(distance).values.get(name);
     }
 
@@ -43,8 +68,8 @@ class Environment {
      * @param value
      */
     void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+        if (values.containsKey(name.symbol)) {
+            values.put(name.symbol, value);
             return;
         }
 
@@ -58,8 +83,8 @@ class Environment {
     }
 
     Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        if (values.containsKey(name.symbol)) {
+            return values.get(name.symbol);
         }
         // 作用域链的概念，先查找本地环境，如果查不到的话，往上层环境查找。
         if (enclosing != null)
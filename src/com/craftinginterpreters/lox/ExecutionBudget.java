@@ -0,0 +1,75 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * 执行预算：指令数上限和墙钟时间上限
+ *
+ * 解释器在循环回边（visitWhileStmt 的每次迭代）和每次调用时消耗一个单位。
+ * 为了让热路径上只有一次 int 自减和比较，解释器每次向预算申请一批
+ * （最多 CHECK_INTERVAL 个）单位，用完后才回到这里结算并检查截止时间，
+ * 所以超时的检测粒度是 CHECK_INTERVAL 次回边或调用。
+ *
+ * spawn 出的任务与所在隔离实例共用同一个预算，各自按批申请，所以 refill 需要同步；
+ * 每批才进来一次，同步的开销摊到上千次回边或调用上。
+ */
+final class ExecutionBudget {
+    static final int CHECK_INTERVAL = 1024;
+
+    private final long instructions;
+    private final long timeoutNanos;
+    private long used;
+    private long deadline;
+
+    /**
+     * @param instructions 允许的回边和调用次数，Long.MAX_VALUE 表示不限
+     * @param timeoutNanos 每次运行允许的纳秒数，Long.MAX_VALUE 表示不限
+     */
+    ExecutionBudget(long instructions, long timeoutNanos) {
+        this.instructions = instructions;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * 开始一次运行：清零已用指令数并重新计算截止时间
+     *
+     * @return 第一批可用的单位数
+     */
+    int start() {
+        used = 0;
+        long now = System.nanoTime();
+        deadline = timeoutNanos == Long.MAX_VALUE || now + timeoutNanos < now
+                ? Long.MAX_VALUE
+                : now + timeoutNanos;
+        return nextGrant();
+    }
+
+    /**
+     * 结算上一批单位并申请下一批
+     *
+     * @param granted 上一批的单位数（已全部用完）
+     * @param at      报错时使用的位置
+     * @return 下一批可用的单位数
+     */
+    synchronized int refill(int granted, Token at) {
+        used += granted;
+        if (used >= instructions)
+            throw new RuntimeError(at, "Execution budget exhausted.");
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0)
+            throw new RuntimeError(at, "Execution time limit exceeded.");
+        return nextGrant();
+    }
+
+    /**
+     * 距离截止时间还剩多少纳秒，用于限制阻塞等待（join、receive）的时长
+     *
+     * @return 剩余纳秒数，不限时间时返回 Long.MAX_VALUE
+     */
+    long remainingNanos() {
+        if (deadline == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private int nextGrant() {
+        return (int) Math.min(CHECK_INTERVAL, instructions - used);
+    }
+}
@@ -0,0 +1,112 @@
+package com.craftinginterpreters.lox;
+
+import java.io.StringWriter;
+import java.time.Duration;
+
+/**
+ * 执行限制测试类
+ * 测试 LoxIsolate 的指令预算、墙钟时间上限、内存配额和栈溢出保护都以运行时错误结束脚本，
+ * 并且出错之后同一个实例还能继续运行
+ */
+public class ExecutionLimitsTest {
+
+    public static void main(String[] args) {
+        System.out.println("=== LoxIsolate 执行限制测试 ===\n");
+
+        // 测试指令预算和时间上限
+        testBudget();
+
+        // 测试内存配额
+        testMemoryQuota();
+
+        // 测试无限递归
+        testStackOverflow();
+
+        System.out.println("\n=== 所有测试完成 ===");
+    }
+
+    /**
+     * 测试 setLimits：死循环在预算或时间用完时停止
+     */
+    private static void testBudget() {
+        System.out.println("1. 测试 setLimits:");
+
+        Sandbox sandbox = new Sandbox();
+        sandbox.lox.setLimits(100_000, null);
+        run(sandbox, "指令预算 100000，while (true)", "var i = 0;\nwhile (true) {\n  i = i + 1;\n}");
+        run(sandbox, "同一实例再次运行", "print i > 0;");
+
+        sandbox = new Sandbox();
+        sandbox.lox.setLimits(Long.MAX_VALUE, Duration.ofMillis(200));
+        run(sandbox, "时间上限 200 ms，while (true)", "while (true) {}");
+
+        sandbox = new Sandbox();
+        sandbox.lox.setLimits(Long.MAX_VALUE, Duration.ofMillis(200));
+        run(sandbox, "时间上限 200 ms，函数中的死循环", "fun spin(n) {\n  while (true) {}\n}\nspin(1);");
+
+        sandbox = new Sandbox();
+        sandbox.lox.setLimits(1_000_000, null);
+        run(sandbox, "预算以内的脚本正常结束", "var s = 0;\nfor (var i = 0; i < 1000; i = i + 1) s = s + i;\nprint s;");
+
+        System.out.println();
+    }
+
+    /**
+     * 测试 setMemoryLimit：成倍增长的字符串、不断创建的实例、一次性的大数组
+     */
+    private static void testMemoryQuota() {
+        System.out.println("2. 测试 setMemoryLimit:");
+
+        Sandbox sandbox = new Sandbox();
+        sandbox.lox.setMemoryLimit(1 << 20);
+        run(sandbox, "配额 1 MB，s = s + s", "var s = \"x\";\nwhile (true) {\n  s = s + s;\n}");
+        run(sandbox, "同一实例再次运行", "print len(s) > 1000;");
+
+        sandbox = new Sandbox();
+        sandbox.lox.setMemoryLimit(1 << 20);
+        run(sandbox, "配额 1 MB，不断创建实例",
+                "class Node {\n  init(next) { this.next = next; }\n}\nvar head = nil;\nwhile (true) {\n  head = Node(head);\n}");
+
+        sandbox = new Sandbox();
+        sandbox.lox.setMemoryLimit(1 << 20);
+        run(sandbox, "配额 1 MB，filled(1000000, 0)", "var a = filled(1000000, 0);");
+
+        System.out.println();
+    }
+
+    /**
+     * 测试失控的递归以 Stack overflow. 结束，而不是让线程崩溃
+     */
+    private static void testStackOverflow() {
+        System.out.println("3. 测试无限递归:");
+
+        Sandbox sandbox = new Sandbox();
+        run(sandbox, "没有任何限制，fun f(n) { return f(n + 1); }", "fun f(n) {\n  return f(n + 1);\n}\nf(0);");
+        run(sandbox, "同一实例再次运行", "print \"still alive\";");
+
+        System.out.println();
+    }
+
+    /**
+     * 一个隔离实例和它的输出，每次运行后清空输出
+     */
+    private static final class Sandbox {
+        final StringWriter out = new StringWriter();
+        final StringWriter err = new StringWriter();
+        final LoxIsolate lox = new LoxIsolate(out, err);
+    }
+
+    /**
+     * 运行一段脚本，打印退出码和 print 的输出或运行时错误
+     */
+    private static void run(Sandbox sandbox, String description, String source) {
+        int status = sandbox.lox.run(source);
+        String result = status == LoxIsolate.OK ? sandbox.out.toString() : sandbox.err.toString();
+        sandbox.out.getBuffer().setLength(0);
+        sandbox.err.getBuffer().setLength(0);
+        System.out.printf("  %s (退出码 %d):\n", description, status);
+        for (String line : result.trim().split("\\R")) {
+            System.out.printf("    %s\n", line);
+        }
+    }
+}
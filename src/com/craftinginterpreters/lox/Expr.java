@@ -20,6 +20,8 @@ abstract class Expr {
    * @param <R> 访问方法的返回类型
    */
   interface Visitor<R> {
+    R visitArrayLiteralExpr(ArrayLiteral expr);
+
     R visitAssignExpr(Assign expr);
 
     R visitBinaryExpr(Binary expr);
@@ -32,6 +34,10 @@ abstract class Expr {
 
     R visitGroupingExpr(Grouping expr);
 
+    R visitIndexExpr(Index expr);
+
+    R visitIndexSetExpr(IndexSet expr);
+
     R visitLiteralExpr(Literal expr);
 
     R visitLogicalExpr(Logical expr);
@@ -47,6 +53,29 @@ abstract class Expr {
     R visitVariableExpr(Variable expr);
   }
 
+  /**
+   * 数组字面量
+   * 
+   * 表示数组的字面量写法，如: [], [1, 2, 3], [a, "b", nil]
+   * 
+   * @field bracket  左方括号 token，用于错误报告时定位
+   * @field elements 元素表达式列表
+   */
+  static class ArrayLiteral extends Expr {
+    ArrayLiteral(Token bracket, List<Expr> elements) {
+      this.bracket = bracket;
+      this.elements = elements;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitArrayLiteralExpr(this);
+    }
+
+    final Token bracket;
+    final List<Expr> elements;
+  }
+
   /**
    * 赋值表达式
    * 
@@ -190,6 +219,61 @@ abstract class Expr {
     final Expr expression;
   }
 
+  /**
+   * 下标访问表达式
+   * 
+   * 表示按下标读取数组元素，如: a[0], matrix[i][j]
+   * 
+   * @field object  被访问的数组表达式
+   * @field bracket 右方括号 token，用于错误报告时定位
+   * @field index   下标表达式
+   */
+  static class Index extends Expr {
+    Index(Expr object, Token bracket, Expr index) {
+      this.object = object;
+      this.bracket = bracket;
+      this.index = index;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitIndexExpr(this);
+    }
+
+    final Expr object;
+    final Token bracket;
+    final Expr index;
+  }
+
+  /**
+   * 下标赋值表达式
+   * 
+   * 表示按下标写入数组元素，如: a[0] = 1, matrix[i][j] = x
+   * 
+   * @field object  被写入的数组表达式
+   * @field bracket 右方括号 token，用于错误报告时定位
+   * @field index   下标表达式
+   * @field value   写入的值表达式
+   */
+  static class IndexSet extends Expr {
+    IndexSet(Expr object, Token bracket, Expr index, Expr value) {
+      this.object = object;
+      this.bracket = bracket;
+      this.index = index;
+      this.value = value;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitIndexSetExpr(this);
+    }
+
+    final Expr object;
+    final Token bracket;
+    final Expr index;
+    final Expr value;
+  }
+
   /**
    * 字面量表达式
    * 
@@ -352,6 +436,12 @@ abstract class Expr {
     final Token name;
   }
 
+  // 插桩模式（--instrument）下由 NodeCounters 分配的节点编号，未编号时为 -1
+  int nodeId = -1;
+
+  // Resolver 写入的作用域距离（变量、赋值、this、super），全局变量为 -1
+  int depth = -1;
+
   /**
    * 接受访问者方法
    * 
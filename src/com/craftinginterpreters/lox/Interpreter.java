@@ -1,9 +1,12 @@
 package com.craftinginterpreters.lox;
 
+import java.io.PrintWriter;
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.craftinginterpreters.lox.Stmt.Block;
 import com.craftinginterpreters.lox.Stmt.Class;
@@ -17,12 +20,45 @@ import com.craftinginterpreters.lox.Stmt.While;
 
 class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     // 替换部分开始
-    final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    final Environment globals;
+    private Environment environment;
+    // 已执行的脚本中解析出的局部变量引用数（距离本身记录在 Expr.depth 上）；
+    // 与 InterpreterMetrics 的计数一样用 LongAdder，JMX 线程读取时不会看到过期的值
+    private final LongAdder resolvedLocals = new LongAdder();
+    // print 语句的输出位置与错误报告，归属于所在的隔离实例
+    private final PrintWriter out;
+    final Diagnostics diagnostics;
+    // --profile 模式下的采样分析器，未开启时为 null
+    SamplingProfiler profiler;
+    // --instrument 模式下的逐节点计数器，未开启时为 null
+    NodeCounters counters;
+    // 注册为 JMX MBean 后的运行指标，未注册时为 null
+    InterpreterMetrics metrics;
+    // --allocations 模式下的分配统计，未开启时为 null
+    AllocationProfiler allocations;
+    // 执行预算，未设置时为 null；fuel 是当前这一批还剩的单位数
+    private ExecutionBudget budget;
+    private int fuel = Integer.MAX_VALUE;
+    private int granted = Integer.MAX_VALUE;
+    // 内存配额，未设置时为 null；超出后在下一个检查点（调用或循环回边）报错
+    private MemoryQuota quota;
+    private boolean overQuota = false;
+    // spawn 启动、尚未等待的任务，由同一隔离实例中的所有解释器共享
+    private final Queue<LoxTask> tasks;
+    // parallelMap / parallelReduce 使用的线程池
+    ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
 
     Interpreter() {
-        globals.define("clock", new LoxCallable() {
+        this(LoxIsolate.writer(System.out), new Diagnostics(System.err));
+    }
+
+    Interpreter(PrintWriter out, Diagnostics diagnostics) {
+        this.out = out;
+        this.diagnostics = diagnostics;
+        this.globals = new Environment();
+        this.environment = globals;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        globals.define(Symbol.intern("clock"), new LoxCallable() {
             @Override
             public int arity() {
                 return 0;
@@ -39,6 +75,112 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 return "<native fn>";
             }
         });
+        defineNative("spawn", 1, LoxTask::spawn);
+        defineNative("join", 1, LoxTask::join);
+        defineNative("channel", 0, LoxChannel::create);
+        defineNative("send", 2, LoxChannel::send);
+        defineNative("receive", 1, LoxChannel::receive);
+        defineNative("array", 0, LoxArray::create);
+        defineNative("filled", 2, LoxArray::filled);
+        defineMutator("push", 2, LoxArray::push);
+        defineMutator("pop", 1, LoxArray::pop);
+        defineNative("len", 1, LoxArray::len);
+        defineMutator("fill", 2, LoxArray::fill);
+        defineNative("slice", 3, LoxArray::slice);
+        defineMutator("extend", 2, LoxArray::extend);
+        defineMutator("sort", 1, LoxArray::sort);
+        defineMutator("reverse", 1, LoxArray::reverse);
+        defineNative("map", 0, LoxMap::create);
+        defineNative("mapWithCapacity", 1, LoxMap::withCapacity);
+        defineMutator("put", 3, LoxMap::put);
+        defineNative("get", 2, LoxMap::get);
+        defineNative("has", 2, LoxMap::has);
+        defineMutator("remove", 2, LoxMap::remove);
+        defineNative("keys", 1, LoxMap::keys);
+        defineNative("values", 1, LoxMap::values);
+        defineNative("StringBuilder", 0, LoxStringBuilder::create);
+        defineNative("substring", 3, LoxStrings::substring);
+        defineNative("indexOf", 2, LoxStrings::indexOf);
+        defineNative("split", 2, LoxStrings::split);
+        defineNative("joinStrings", 2, LoxStrings::joinStrings);
+        defineNative("vadd", 2, LoxVectors::add);
+        defineNative("vmul", 2, LoxVectors::multiply);
+        defineNative("dot", 2, LoxVectors::dot);
+        defineNative("sum", 1, LoxVectors::sum);
+        defineNative("min", 1, LoxVectors::min);
+        defineNative("max", 1, LoxVectors::max);
+        defineNative("parallelMap", 2, LoxParallel::map);
+        defineNative("parallelReduce", 3, LoxParallel::reduce);
+    }
+
+    /**
+     * spawn 任务和并行 map/reduce 使用的解释器：执行状态独立，全局环境、输出、指标、预算和配额与父解释器共享
+     */
+    private Interpreter(Interpreter parent) {
+        this.out = parent.out;
+        this.diagnostics = parent.diagnostics;
+        this.globals = parent.globals;
+        this.environment = globals;
+        this.tasks = parent.tasks;
+        this.metrics = parent.metrics;
+        this.forkJoinPool = parent.forkJoinPool;
+        this.budget = parent.budget;
+        this.quota = parent.quota;
+        // 从空的一批开始，第一次调用或回边时向共享预算申请
+        if (budget != null) {
+            granted = 0;
+            fuel = 0;
+        }
+    }
+
+    private void defineNative(String name, int arity, NativeFunction.Body body) {
+        globals.define(Symbol.intern(name), new NativeFunction(arity, false, body));
+    }
+
+    /**
+     * 定义会修改第一个参数的原生函数
+     */
+    private void defineMutator(String name, int arity, NativeFunction.Body body) {
+        globals.define(Symbol.intern(name), new NativeFunction(arity, true, body));
+    }
+
+    /**
+     * 为 spawn 的任务或 parallelMap 的一段工作创建解释器
+     */
+    Interpreter fork() {
+        return new Interpreter(this);
+    }
+
+    /**
+     * 登记 spawn 的任务，脚本结束时等待
+     */
+    void track(LoxTask task) {
+        tasks.add(task);
+    }
+
+    /**
+     * 阻塞等待最多还能等多久，超出执行时间上限的等待以运行时错误结束
+     */
+    long remainingNanos() {
+        return budget == null ? Long.MAX_VALUE : budget.remainingNanos();
+    }
+
+    /**
+     * 等待所有尚未结束的任务（包括任务中再 spawn 的任务）
+     *
+     * 与单线程时遇到第一个运行时错误就停止一致，这里也只报告第一个错误：
+     * 脚本本身已经出错时（例如和任务同时超时），不再报告任务中的错误。
+     */
+    private void awaitTasks() {
+        LoxTask task;
+        while ((task = tasks.poll()) != null) {
+            RuntimeError error = task.await();
+            if (error != null && !diagnostics.hadRuntimeError) {
+                if (metrics != null)
+                    metrics.runtimeErrors.increment();
+                diagnostics.runtimeError(error);
+            }
+        }
     }
 
     private boolean isTruthy(Object object) {
@@ -50,6 +192,8 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     }
 
     private Object evaluate(Expr expr) {
+        if (counters != null)
+            counters.countExpr(expr);
         return expr.accept(this);
     }
 
@@ -59,7 +203,8 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         if (a == null)
             return false;
 
-        return a.equals(b);
+        // LoxRope 需要展开后才能与 String 按内容比较
+        return LoxRope.flatten(a).equals(LoxRope.flatten(b));
     }
 
     private void checkNumberOperand(Token operator, Object operand) {
@@ -68,33 +213,194 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new RuntimeError(operator, "Operand must be a number.");
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null)
             return "nil";
 
         if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return NumberFormatter.format((double) object);
         }
 
+        // LoxRope 在这里展开为扁平字符串
         return object.toString();
     }
 
+    /**
+     * 与 stringify 相同，但直接追加到 StringBuilder，数字不产生中间字符串
+     */
+    private void stringifyTo(StringBuilder sb, Object object) {
+        if (object instanceof Double) {
+            NumberFormatter.appendTo(sb, (double) object);
+        } else if (object instanceof String) {
+            sb.append((String) object);
+        } else {
+            sb.append(stringify(object));
+        }
+    }
+
+    /**
+     * 是否为短到拼接后不值得建 LoxRope 节点的扁平字符串
+     */
+    private static boolean isShortString(Object value) {
+        return value instanceof String && ((String) value).length() < LoxRope.FLAT_THRESHOLD;
+    }
+
+    /**
+     * 字符串拼接：字符串（含 LoxRope）原样参与拼接，其他值先 stringify
+     *
+     * 数字与短字符串拼接（例如 "i = " + i）时结果是扁平字符串，数字直接格式化进结果，
+     * 不先生成数字的字符串。
+     */
+    private CharSequence concatenate(Token operator, Object left, Object right) {
+        if ((left instanceof Double && isShortString(right)) || (right instanceof Double && isShortString(left))) {
+            StringBuilder sb = new StringBuilder(LoxRope.FLAT_THRESHOLD);
+            stringifyTo(sb, left);
+            stringifyTo(sb, right);
+            String result = sb.toString();
+            if (quota != null && quota.charge(MemoryQuota.stringBytes(result.length())))
+                throw new RuntimeError(operator, "Memory quota exceeded.");
+            return result;
+        }
+
+        CharSequence leftText = LoxRope.isString(left) ? (CharSequence) left : stringify(left);
+        CharSequence rightText = LoxRope.isString(right) ? (CharSequence) right : stringify(right);
+        if (quota == null)
+            return LoxRope.concat(leftText, rightText);
+
+        // stringify 出来的操作数和拼接结果都是新分配的；结果过长时在拼接之前就拦下
+        long bytes = 0;
+        if (leftText != left)
+            bytes += MemoryQuota.stringBytes(leftText.length());
+        if (rightText != right)
+            bytes += MemoryQuota.stringBytes(rightText.length());
+        if (!quota.fits((long) leftText.length() + rightText.length()))
+            throw new RuntimeError(operator, "Memory quota exceeded.");
+        CharSequence result = LoxRope.concat(leftText, rightText);
+        if (result instanceof LoxRope) {
+            bytes += MemoryQuota.ROPE_BYTES;
+        } else if (result != leftText && result != rightText) {
+            bytes += MemoryQuota.stringBytes(result.length());
+        }
+        if (quota.charge(bytes))
+            throw new RuntimeError(operator, "Memory quota exceeded.");
+        return result;
+    }
+
     private void execute(Stmt stmt) {
-        stmt.accept(this);
+        if (metrics != null)
+            metrics.statements.increment();
+        NodeCounters counters = this.counters;
+        if (counters == null) {
+            stmt.accept(this);
+            return;
+        }
+
+        counters.enterStmt(stmt);
+        try {
+            stmt.accept(this);
+        } finally {
+            counters.exitStmt(stmt);
+        }
+    }
+
+    /**
+     * 执行编译好的脚本
+     */
+    void interpret(CompiledScript script) {
+        resolvedLocals.add(script.resolvedLocals);
+        interpret(script.statements);
+    }
+
+    /**
+     * 设置执行预算，null 表示不限制
+     */
+    void setBudget(ExecutionBudget budget) {
+        this.budget = budget;
+        granted = budget == null ? Integer.MAX_VALUE : budget.start();
+        fuel = granted;
+    }
+
+    /**
+     * 消耗一个单位（循环回边或调用），本批用完时结算预算
+     */
+    private void consumeFuel(Token at) {
+        if (fuel-- == 0)
+            refuel(at);
+    }
+
+    /**
+     * 设置内存配额，null 表示不限制
+     */
+    void setMemoryQuota(MemoryQuota quota) {
+        this.quota = quota;
+        overQuota = false;
+        if (quota != null)
+            quota.start();
+    }
+
+    private void refuel(Token at) {
+        if (overQuota)
+            throw new RuntimeError(at, "Memory quota exceeded.");
+        if (budget == null) {
+            granted = Integer.MAX_VALUE;
+        } else {
+            granted = budget.refill(granted, at);
+        }
+        // 本次调用也要消耗一个单位
+        fuel = granted - 1;
     }
 
     void interpret(List<Stmt> statements) {
         try {
             for (Stmt statement : statements) {
-                execute(statement);
+                AllocationProfiler allocations = this.allocations;
+                if (allocations == null) {
+                    execute(statement);
+                    continue;
+                }
+                allocations.enterStatement(statement);
+                try {
+                    execute(statement);
+                } finally {
+                    allocations.exit();
+                }
             }
         } catch (RuntimeError error) {
-            Lox.runtimeError(error);
+            if (metrics != null)
+                metrics.runtimeErrors.increment();
+            diagnostics.runtimeError(error);
+        }
+        awaitTasks();
+    }
+
+    /**
+     * 由宿主直接调用 Lox 函数（javax.script 的 invokeFunction / invokeMethod），
+     * 与 interpret 一样在返回前等待调用中 spawn 的任务
+     *
+     * @return 函数的返回值
+     * @throws RuntimeError 函数出错时抛出它的错误（之后任务中的错误不再报告）；
+     *                      函数正常返回而任务出错时，抛出第一个任务错误
+     */
+    Object invoke(LoxCallable function, List<Object> arguments) {
+        RuntimeError failure = null;
+        Object result = null;
+        try {
+            result = function.call(this, arguments);
+        } catch (StackOverflowError error) {
+            failure = new RuntimeError(null, "Stack overflow.");
+        } catch (RuntimeError error) {
+            failure = error;
         }
+        if (failure != null) {
+            if (metrics != null)
+                metrics.runtimeErrors.increment();
+            diagnostics.hadRuntimeError = true;
+            diagnostics.lastRuntimeError = failure;
+        }
+        awaitTasks();
+        if (diagnostics.lastRuntimeError != null)
+            throw diagnostics.lastRuntimeError;
+        return result;
     }
 
     /**
@@ -108,8 +414,12 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             Object value = evaluate(expression);
             return stringify(value);
         } catch (RuntimeError error) {
-            Lox.runtimeError(error);
+            if (metrics != null)
+                metrics.runtimeErrors.increment();
+            diagnostics.runtimeError(error);
             return null;
+        } finally {
+            awaitTasks();
         }
     }
 
@@ -134,9 +444,9 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     }
 
     private Object lookUpVariable(Token name, Expr expr) {
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            return environment.getAt(distance, name.lexeme);
+        int distance = expr.depth;
+        if (distance >= 0) {
+            return environment.getAt(distance, name.symbol);
         } else {
             return globals.get(name);
         }
@@ -154,11 +464,24 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new RuntimeError(operator, "Operands must be numbers.");
     }
 
+    @Override
+    public Object visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        Object[] elements = new Object[expr.elements.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = evaluate(expr.elements.get(i));
+        }
+        try {
+            return LoxArray.of(this, elements);
+        } catch (RuntimeError error) {
+            throw located(error, expr.bracket);
+        }
+    }
+
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
-        Integer distance = locals.get(expr);
-        if (distance != null) {
+        int distance = expr.depth;
+        if (distance >= 0) {
             environment.assignAt(distance, expr.name, value);
         } else {
             globals.assign(expr.name, value);
@@ -171,6 +494,8 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitBinaryExpr(Expr.Binary expr) {
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
+        if (counters != null)
+            counters.binaryOperands(expr, left, right);
 
         switch (expr.operator.type) {
             // 新增部分开始
@@ -198,8 +523,8 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 }
 
                 // 如果任一操作数是字符串，将另一个转换为字符串并拼接
-                if (left instanceof String || right instanceof String) {
-                    return stringify(left) + stringify(right);
+                if (LoxRope.isString(left) || LoxRope.isString(right)) {
+                    return concatenate(expr.operator, left, right);
                 }
 
                 throw new RuntimeError(expr.operator,
@@ -225,6 +550,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitCallExpr(Expr.Call expr) {
+        consumeFuel(expr.paren);
         Object callee = evaluate(expr.callee);
 
         List<Object> arguments = new ArrayList<>();
@@ -241,7 +567,33 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     function.arity() + " arguments but got " +
                     arguments.size() + ".");
         }
-        return function.call(this, arguments);
+        if (metrics != null)
+            metrics.calls.increment();
+        AllocationProfiler allocations = this.allocations;
+        if (allocations == null)
+            return call(function, arguments, expr);
+
+        allocations.enterCall(function, expr);
+        try {
+            return call(function, arguments, expr);
+        } finally {
+            allocations.exit();
+        }
+    }
+
+    /**
+     * 失控的递归表现为 StackOverflowError，在这里转换为普通的运行时错误，
+     * 不会让所在的线程（或整个隔离实例所在的工作线程）崩溃
+     */
+    private Object call(LoxCallable function, List<Object> arguments, Expr.Call expr) {
+        try {
+            return function.call(this, arguments);
+        } catch (StackOverflowError error) {
+            throw new RuntimeError(expr.paren, "Stack overflow.");
+        } catch (RuntimeError error) {
+            // 原生函数抛出的错误没有位置，补上调用处
+            throw located(error, expr.paren);
+        }
     }
 
     @Override
@@ -254,8 +606,16 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitGetExpr(Expr.Get expr) {
         Object object = evaluate(expr.object);
         if (object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.name);
+            LoxInstance instance = (LoxInstance) object;
+            Object value = instance.get(expr.name);
+            // 不是字段就是刚绑定出来的方法（同时创建了一个绑定 this 的环境）
+            if ((metrics != null || allocations != null || quota != null)
+                    && !instance.hasField(expr.name.symbol))
+                boundMethodAllocated();
+            return value;
         }
+        if (object instanceof LoxStringBuilder)
+            return ((LoxStringBuilder) object).get(expr.name);
 
         throw new RuntimeError(expr.name,
                 "Only instances have properties.");
@@ -291,25 +651,29 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
         Object value = evaluate(expr.value);
-        ((LoxInstance) object).set(expr.name, value);
+        LoxInstance instance = (LoxInstance) object;
+        if (quota != null && !instance.hasField(expr.name.symbol))
+            chargeMemory(MemoryQuota.FIELD_BYTES);
+        instance.set(expr.name, value);
         return value;
     }
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
+        int distance = expr.depth;
         // 获取当前类（而不是单个父类）
         LoxClass currentClass = (LoxClass) environment.getAt(
-                distance, "super");
+                distance, Symbol.SUPER);
         LoxInstance object = (LoxInstance) environment.getAt(
-                distance - 1, "this");
+                distance - 1, Symbol.THIS);
         // 在所有父类中查找方法
-        LoxFunction method = currentClass.findMethodInSuperclasses(expr.method.lexeme);
+        LoxFunction method = currentClass.findMethodInSuperclasses(expr.method.symbol);
         // 绑定的是实例的 this，如果有 class A class B B < A ,那么 this 是B
         if (method == null) {
             throw new RuntimeError(expr.method,
                     "Undefined property '" + expr.method.lexeme + "'.");
         }
+        boundMethodAllocated();
         return method.bind(object);
     }
 
@@ -318,8 +682,73 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return lookUpVariable(expr.keyword, expr);
     }
 
-    void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    int resolvedLocals() {
+        return resolvedLocals.intValue();
+    }
+
+    /**
+     * 创建嵌套作用域，开启指标统计或分配统计时计数
+     */
+    Environment newEnvironment(Environment enclosing) {
+        if (metrics != null)
+            metrics.environments.increment();
+        if (allocations != null)
+            allocations.environment();
+        if (quota != null)
+            chargeMemory(MemoryQuota.ENVIRONMENT_BYTES);
+        return new Environment(enclosing);
+    }
+
+    void instanceAllocated() {
+        if (metrics != null)
+            metrics.instances.increment();
+        if (allocations != null)
+            allocations.instance();
+        if (quota != null)
+            chargeMemory(MemoryQuota.INSTANCE_BYTES);
+    }
+
+    void boundMethodAllocated() {
+        if (metrics != null)
+            metrics.boundMethodAllocated();
+        if (allocations != null)
+            allocations.boundMethod();
+        if (quota != null)
+            chargeMemory(MemoryQuota.BOUND_METHOD_BYTES + MemoryQuota.ENVIRONMENT_BYTES);
+    }
+
+    /**
+     * 原生值（数组存储等）分配前记账
+     *
+     * 这类分配的大小由脚本决定（例如 filled(n, 0)），超出配额时必须在分配之前就报错，
+     * 不能像 chargeMemory 那样推迟到下一个检查点。错误没有位置，由调用处补上。
+     */
+    void allocated(long bytes) {
+        if (quota != null && quota.charge(bytes)) {
+            overQuota = true;
+            throw new RuntimeError(null, "Memory quota exceeded.");
+        }
+    }
+
+    /**
+     * 给没有位置的错误（来自原生函数或数组操作）补上位置
+     */
+    private static RuntimeError located(RuntimeError error, Token at) {
+        if (error.token != null)
+            return error;
+        return new RuntimeError(at, error.getMessage());
+    }
+
+    /**
+     * 记入一次分配；这些位置手头没有可用于报错的 Token，
+     * 超出配额时把 fuel 清零，让下一次调用或循环回边进入 refuel 报错。
+     * 两个检查点之间只有直线代码，超出的部分有界。
+     */
+    private void chargeMemory(long bytes) {
+        if (quota.charge(bytes)) {
+            overQuota = true;
+            fuel = 0;
+        }
     }
 
     @Override
@@ -327,6 +756,43 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return evaluate(expr.expression);
     }
 
+    @Override
+    public Object visitIndexExpr(Expr.Index expr) {
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+        if (object instanceof LoxMap) {
+            LoxMap.checkKey(expr.bracket, index);
+            return ((LoxMap) object).get(index);
+        }
+        LoxArray array = indexedArray(object, expr.bracket);
+        return array.get(array.index(expr.bracket, index));
+    }
+
+    @Override
+    public Object visitIndexSetExpr(Expr.IndexSet expr) {
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+        Object value = evaluate(expr.value);
+        try {
+            if (object instanceof LoxMap) {
+                LoxMap.checkKey(expr.bracket, index);
+                ((LoxMap) object).put(this, index, value);
+                return value;
+            }
+            LoxArray array = indexedArray(object, expr.bracket);
+            array.set(this, array.index(expr.bracket, index), value);
+        } catch (RuntimeError error) {
+            throw located(error, expr.bracket);
+        }
+        return value;
+    }
+
+    private LoxArray indexedArray(Object object, Token bracket) {
+        if (object instanceof LoxArray)
+            return (LoxArray) object;
+        throw new RuntimeError(bracket, "Only arrays and maps can be indexed.");
+    }
+
     void executeBlock(List<Stmt> statements,
             Environment environment) {
 
@@ -346,7 +812,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitBlockStmt(Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
+        executeBlock(stmt.statements, newEnvironment(environment));
         return null;
     }
 
@@ -363,25 +829,25 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             superclasses.add((LoxClass) superclass);
         }
 
-        environment.define(stmt.name.lexeme, null);
+        environment.define(stmt.name.symbol, null);
 
         // 如果有父类，创建新环境（稍后绑定 super）
         if (!stmt.superclasses.isEmpty()) {
-            environment = new Environment(environment);
+            environment = newEnvironment(environment);
         }
 
-        Map<String, LoxFunction> methods = new HashMap<>();
+        SymbolMap<LoxFunction> methods = new SymbolMap<>();
         LoxClass klass = new LoxClass(stmt.name.lexeme, superclasses, methods);
 
         // 绑定 super 为当前类，这样 super.method() 可以在所有父类中查找
         if (!stmt.superclasses.isEmpty()) {
-            environment.define("super", klass);
+            environment.define(Symbol.SUPER, klass);
         }
 
         // 在绑定 super 后再创建方法，这样方法闭包能捕获到 super
         for (Stmt.Function method : stmt.methods) {
-            LoxFunction function = new LoxFunction(method, environment, method.name.lexeme.equals("init"));
-            methods.put(method.name.lexeme, function);
+            LoxFunction function = new LoxFunction(method, environment, method.name.symbol == Symbol.INIT);
+            methods.put(method.name.symbol, function);
         }
 
         if (!stmt.superclasses.isEmpty()) {
@@ -389,6 +855,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
         environment.assign(stmt.name, klass);
+        LoxEvents.classDefined(stmt);
         return null;
     }
 
@@ -402,7 +869,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitFunctionStmt(Function stmt) {
         // 用户可能会取名为 init，所以方法名称不能为 init，传入false
         LoxFunction function = new LoxFunction(stmt, environment, false);
-        environment.define(stmt.name.lexeme, function);
+        environment.define(stmt.name.symbol, function);
         return null;
     }
 
@@ -419,7 +886,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitPrintStmt(Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.println(stringify(value));
         return null;
     }
 
@@ -439,7 +906,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             value = evaluate(stmt.initializer);
         }
 
-        environment.define(stmt.name.lexeme, value);
+        environment.define(stmt.name.symbol, value);
         return null;
     }
 
@@ -447,6 +914,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitWhileStmt(Stmt.While stmt) {
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            consumeFuel(stmt.keyword);
         }
         return null;
     }
@@ -0,0 +1,147 @@
+package com.craftinginterpreters.lox;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 解释器运行指标，以 JMX MBean 的形式暴露给长期运行的宿主
+ *
+ * 计数使用 LongAdder：解释线程递增时没有竞争，JMX 线程随时读取汇总值。
+ * 未注册时 Interpreter.metrics 为 null，执行路径上只多一次判空。
+ */
+class InterpreterMetrics implements InterpreterMetricsMBean {
+    private final Interpreter interpreter;
+
+    final LongAdder statements = new LongAdder();
+    final LongAdder calls = new LongAdder();
+    final LongAdder instances = new LongAdder();
+    final LongAdder environments = new LongAdder();
+    final LongAdder boundMethods = new LongAdder();
+    final LongAdder runtimeErrors = new LongAdder();
+    final LongAdder scanNanos = new LongAdder();
+    final LongAdder parseNanos = new LongAdder();
+    final LongAdder resolveNanos = new LongAdder();
+    final LongAdder executeNanos = new LongAdder();
+
+    private InterpreterMetrics(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * 为解释器开启指标统计，并注册到平台 MBeanServer
+     *
+     * ObjectName 为 com.craftinginterpreters.lox:type=Interpreter,name=&lt;name&gt;
+     *
+     * @param interpreter 要统计的解释器
+     * @param name        区分同一 JVM 中多个解释器的名字
+     * @return 已注册的指标对象
+     */
+    static InterpreterMetrics register(Interpreter interpreter, String name) {
+        InterpreterMetrics metrics = new InterpreterMetrics(interpreter);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register interpreter metrics '" + name + "'.", e);
+        }
+        interpreter.metrics = metrics;
+        return metrics;
+    }
+
+    /**
+     * 注销 MBean 并停止统计
+     */
+    static void unregister(Interpreter interpreter, String name) {
+        interpreter.metrics = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister interpreter metrics '" + name + "'.", e);
+        }
+    }
+
+    /**
+     * 绑定方法会同时创建一个存放 this 的环境
+     */
+    void boundMethodAllocated() {
+        boundMethods.increment();
+        environments.increment();
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.craftinginterpreters.lox:type=Interpreter,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getInstancesAllocated() {
+        return instances.sum();
+    }
+
+    @Override
+    public long getEnvironmentsAllocated() {
+        return environments.sum();
+    }
+
+    @Override
+    public long getBoundMethodsAllocated() {
+        return boundMethods.sum();
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+        return runtimeErrors.sum();
+    }
+
+    @Override
+    public int getResolvedLocals() {
+        return interpreter.resolvedLocals();
+    }
+
+    @Override
+    public double getScanMillis() {
+        return scanNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getParseMillis() {
+        return parseNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getResolveMillis() {
+        return resolveNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getExecuteMillis() {
+        return executeNanos.sum() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        statements.reset();
+        calls.reset();
+        instances.reset();
+        environments.reset();
+        boundMethods.reset();
+        runtimeErrors.reset();
+        scanNanos.reset();
+        parseNanos.reset();
+        resolveNanos.reset();
+        executeNanos.reset();
+    }
+}
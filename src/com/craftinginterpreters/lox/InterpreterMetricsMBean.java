@@ -0,0 +1,38 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * 解释器运行指标的 JMX 接口（标准 MBean 要求接口为 public）
+ *
+ * 计数类指标从注册开始累计，耗时类指标单位为毫秒。
+ */
+public interface InterpreterMetricsMBean {
+    long getStatementsExecuted();
+
+    long getCalls();
+
+    long getInstancesAllocated();
+
+    long getEnvironmentsAllocated();
+
+    long getBoundMethodsAllocated();
+
+    long getRuntimeErrors();
+
+    /**
+     * 该解释器执行过的脚本中，Resolver 解析出的局部变量引用数
+     */
+    int getResolvedLocals();
+
+    double getScanMillis();
+
+    double getParseMillis();
+
+    double getResolveMillis();
+
+    double getExecuteMillis();
+
+    /**
+     * 将所有计数清零
+     */
+    void reset();
+}
@@ -6,56 +6,135 @@ import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Lox {
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
-    private static final Interpreter interpreter = new Interpreter();
+    // 命令行使用的隔离实例，输出到标准输出和标准错误
+    private static final LoxIsolate isolate = new LoxIsolate(System.out, System.err);
+    private static final Interpreter interpreter = isolate.interpreter;
+    private static final long PROFILE_INTERVAL_NANOS = 1_000_000L;
 
-    static void error(int line, String message) {
-        report(line, "", message);
-    }
+    public static void main(String[] args) throws IOException {
+        // 解析命令行参数
+        List<String> paths = new ArrayList<>();
+        boolean profile = false;
+        boolean instrument = false;
+        boolean metrics = false;
+        boolean allocations = false;
+        String daemon = null;
+        String connect = null;
+        String batch = null;
+        boolean updateGolden = false;
+        Duration timeout = LoxDaemon.DEFAULT_TIMEOUT;
+        long maxMemory = LoxDaemon.DEFAULT_MEMORY_LIMIT;
+        boolean daemonLimits = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equals("--daemon") || arg.equals("--connect")) && i + 1 < args.length) {
+                // 这两个选项带一个参数：Unix 域套接字路径
+                if (arg.equals("--daemon")) {
+                    daemon = args[++i];
+                } else {
+                    connect = args[++i];
+                }
+            } else if (arg.equals("--timeout") && i + 1 < args.length) {
+                // 常驻模式下每个请求的限制
+                timeout = Duration.ofSeconds(Long.parseLong(args[++i]));
+                daemonLimits = true;
+            } else if (arg.equals("--max-memory") && i + 1 < args.length) {
+                maxMemory = Long.parseLong(args[++i]);
+                daemonLimits = true;
+            } else if (arg.equals("--batch") && i + 1 < args.length) {
+                batch = args[++i];
+            } else if (arg.equals("--update-golden")) {
+                updateGolden = true;
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.equals("--instrument")) {
+                instrument = true;
+            } else if (arg.equals("--allocations")) {
+                allocations = true;
+            } else if (arg.equals("--metrics")) {
+                metrics = true;
+            } else {
+                paths.add(arg);
+            }
+        }
 
-    static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() +
-                "\n[line " + error.token.line + "]");
-        hadRuntimeError = true;
-    }
+        if (paths.size() > 1 || ((profile || instrument || allocations) && paths.isEmpty())
+                || (daemon != null && !paths.isEmpty()) || (connect != null && paths.size() != 1)
+                || (batch != null && !paths.isEmpty()) || (updateGolden && batch == null)
+                || (daemonLimits && daemon == null)) {
+            System.out.println("Usage: jlox [--profile] [--instrument] [--allocations] [--metrics] [script]");
+            System.out.println("       jlox --daemon <socket> [--timeout <seconds>] [--max-memory <bytes>]");
+            System.out.println("       jlox --connect <socket> script");
+            System.out.println("       jlox --batch <directory|glob> [--update-golden]");
+            System.exit(64);
+        }
 
-    private static void report(int line, String where,
-            String message) {
-        System.err.println(
-                "[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
-    }
+        if (batch != null) {
+            System.exit(BatchRunner.run(batch, updateGolden, System.out));
+        }
 
-    static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+        if (connect != null) {
+            System.exit(LoxDaemon.connect(Paths.get(connect), Paths.get(paths.get(0))));
+        }
+        if (daemon != null) {
+            try {
+                LoxDaemon.serve(Paths.get(daemon), timeout, maxMemory);
+            } catch (IOException e) {
+                System.err.println("Cannot start daemon: " + e.getMessage());
+                System.exit(LoxDaemon.IO_ERROR);
+            }
+            return;
         }
-    }
 
-    public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        if (metrics) {
+            // 通过 jconsole / jcmd 查看 com.craftinginterpreters.lox:type=Interpreter
+            InterpreterMetrics.register(interpreter, "main");
+        }
+        // jlox 命令行在执行前打印 AST 语法树
+        isolate.printAst = true;
+        if (paths.size() == 1) {
+            runFile(paths.get(0), profile, instrument, allocations);
         } else {
             runPrompt();
         }
     }
 
-    private static void runFile(String path) throws IOException {
+    private static void runFile(String path, boolean profile, boolean instrument,
+            boolean allocations) throws IOException {
         byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-        if (hadError)
-            System.exit(65);
-        if (hadRuntimeError)
-            System.exit(70);
+        if (instrument) {
+            interpreter.counters = new NodeCounters();
+        }
+        if (allocations) {
+            interpreter.allocations = new AllocationProfiler();
+        }
+        // 先编译再开始采样：扫描、解析和 resolve 不计入 <script> 的自身耗时
+        CompiledScript script = isolate.compile(new String(bytes, Charset.defaultCharset()));
+        if (script == null)
+            System.exit(LoxIsolate.COMPILE_ERROR);
+        if (profile) {
+            interpreter.profiler = new SamplingProfiler(PROFILE_INTERVAL_NANOS);
+            interpreter.profiler.start();
+        }
+        int status = isolate.run(script);
+        if (profile) {
+            // 每个函数的耗时输出到 stderr，折叠调用栈写到脚本旁的 .folded 文件
+            interpreter.profiler.stop();
+            interpreter.profiler.report(System.err, Paths.get(path + ".folded"));
+        }
+        if (instrument) {
+            interpreter.counters.report(System.err);
+        }
+        if (allocations) {
+            interpreter.allocations.report(System.err);
+        }
+        if (status != LoxIsolate.OK)
+            System.exit(status);
 
     }
 
@@ -71,66 +150,20 @@ public class Lox {
 
             // REPL 模式：智能识别表达式和语句
             runRepl(line);
-            hadError = false;
         }
     }
 
-    /**
-     * REPL 智能执行：支持表达式自动求值打印和语句执行
-     * 
-     * 策略：
-     * 1. 如果输入不以分号结尾，先尝试作为表达式解析
-     * 2. 表达式解析成功则求值并打印结果
-     * 3. 表达式解析失败或输入以分号结尾，则作为语句执行
-     */
     private static void runRepl(String source) {
-        // 先尝试作为表达式解析（如果不以分号结尾）
-        if (!source.trim().endsWith(";")) {
-            Scanner scanner = new Scanner(source);
-            List<Token> tokens = scanner.scanTokens();
-            Parser parser = new Parser(tokens);
-            Expr expression = parser.parseExpression();
-
-            if (expression != null && !hadError) {
-                // 成功解析为表达式，求值并打印结果
-                String result = interpreter.interpretExpression(expression);
-                if (result != null) {
-                    System.out.println(result);
-                }
-                return;
+        LoxEvents.ReplEvaluation event = new LoxEvents.ReplEvaluation();
+        event.begin();
+        try {
+            isolate.evaluate(source);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.commit();
             }
-
-            // 表达式解析失败，重置错误状态，尝试作为语句处理
-            hadError = false;
         }
-
-        // 作为语句执行
-        run(source);
-    }
-
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
-
-        // 打印 AST 语法树
-        System.out.println(new AstTreePrinter().print(statements));
-
-        // Stop if there was a syntax error.
-        if (hadError)
-            return;
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
-        if (hadError)
-            return;
-
-        interpreter.interpret(statements);
-
-        // System.out.println(new AstPrinter().print(expression));
-        // For now, just print the tokens.
-        // for (Token token : tokens) {
-        // System.out.println(token);
-        // }
     }
 }
\ No newline at end of file
@@ -0,0 +1,404 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lox 的原生数组：字面量 [a, b]、下标读写 a[i] / a[i] = v，以及一组原生函数
+ *
+ * 存储随内容变化：元素全是数字时放在 double[] 中，不为每个元素装箱，
+ * 同样多的数字只占 Object[] 加 Double 对象的几分之一，遍历时也是连续内存；
+ * 写入第一个非数字元素时整体转换为 Object[]，之后不再转换回来。
+ * 容量按两倍增长，push 的均摊开销为 O(1)。
+ *
+ * 原生函数：array、filled、push、pop、len、fill、slice、extend、sort、reverse。
+ * 存储分配都会记入所在解释器的内存配额。
+ * 打印时，包含自身的数组在内层打印为 [...]，不会无限递归。
+ *
+ * 数组不是线程安全的：在 spawn 或 parallelMap 的任务之间共享同一个数组时，
+ * 不能同时写入。
+ */
+final class LoxArray {
+    private static final double[] NO_NUMBERS = {};
+    private static final int MIN_CAPACITY = 8;
+    // 当前线程正在打印的数组和映射（按引用比较），再次遇到说明容器包含自身
+    private static final ThreadLocal<Set<Object>> printing =
+            ThreadLocal.withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    // 两者恰好一个不为 null
+    private double[] numbers;
+    private Object[] objects;
+    private int size;
+
+    LoxArray() {
+        numbers = NO_NUMBERS;
+    }
+
+    private LoxArray(double[] numbers, Object[] objects, int size) {
+        this.numbers = numbers;
+        this.objects = objects;
+        this.size = size;
+    }
+
+    /**
+     * 由给定元素创建数组，全部是数字时使用 double[] 存储
+     */
+    static LoxArray of(Interpreter interpreter, Object[] elements) {
+        interpreter.allocated(storageBytes(elements.length));
+        for (Object element : elements) {
+            if (!(element instanceof Double))
+                return new LoxArray(null, elements, elements.length);
+        }
+        double[] numbers = new double[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            numbers[i] = (double) elements[i];
+        }
+        return new LoxArray(numbers, null, elements.length);
+    }
+
+    /**
+     * 长度为 size、元素全为 0 的数字数组，供原生函数直接写入 numbers() 返回的存储
+     */
+    static LoxArray zeros(Interpreter interpreter, int size) {
+        interpreter.allocated(storageBytes(size));
+        return new LoxArray(new double[size], null, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 元素全是数字时返回 double[]，只有 [0, size) 有效
+     *
+     * 使用 double[] 存储时直接返回存储本身，不拷贝；已转换为 Object[] 但元素恰好都是数字时
+     * 返回一份拷贝；含有非数字元素时返回 null。
+     */
+    double[] numbers() {
+        if (numbers != null)
+            return numbers;
+        double[] copy = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (!(objects[i] instanceof Double))
+                return null;
+            copy[i] = (double) objects[i];
+        }
+        return copy;
+    }
+
+    Object get(int index) {
+        return numbers != null ? (Object) numbers[index] : objects[index];
+    }
+
+    void set(Interpreter interpreter, int index, Object value) {
+        if (numbers != null) {
+            if (value instanceof Double) {
+                numbers[index] = (double) value;
+                return;
+            }
+            generalize(interpreter);
+        }
+        objects[index] = value;
+    }
+
+    void add(Interpreter interpreter, Object value) {
+        ensureCapacity(interpreter, size + 1);
+        size++;
+        set(interpreter, size - 1, value);
+    }
+
+    /**
+     * 当前元素的快照
+     */
+    Object[] toArray() {
+        if (objects != null)
+            return Arrays.copyOf(objects, size);
+        Object[] elements = new Object[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = numbers[i];
+        }
+        return elements;
+    }
+
+    private int capacity() {
+        return numbers != null ? numbers.length : objects.length;
+    }
+
+    private void ensureCapacity(Interpreter interpreter, int needed) {
+        int capacity = capacity();
+        if (needed <= capacity)
+            return;
+        int grown = Math.max(MIN_CAPACITY, Math.max(needed, capacity * 2));
+        interpreter.allocated(storageBytes(grown));
+        if (numbers != null) {
+            numbers = Arrays.copyOf(numbers, grown);
+        } else {
+            objects = Arrays.copyOf(objects, grown);
+        }
+    }
+
+    /**
+     * 从 double[] 转换为 Object[]，容量不变
+     */
+    private void generalize(Interpreter interpreter) {
+        interpreter.allocated(storageBytes(numbers.length));
+        Object[] boxed = new Object[numbers.length];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = numbers[i];
+        }
+        objects = boxed;
+        numbers = null;
+    }
+
+    private static long storageBytes(int capacity) {
+        return MemoryQuota.ARRAY_BYTES + MemoryQuota.ARRAY_SLOT_BYTES * capacity;
+    }
+
+    /**
+     * 检查下标并转换为 int
+     *
+     * @param at 报错位置，原生函数中为 null（由调用处补上）
+     */
+    int index(Token at, Object index) {
+        if (!(index instanceof Double))
+            throw new RuntimeError(at, "Array index must be a number.");
+        double value = (double) index;
+        int position = (int) value;
+        if (position != value)
+            throw new RuntimeError(at, "Array index must be an integer.");
+        if (position < 0 || position >= size)
+            throw new RuntimeError(at, "Array index " + position + " is out of bounds for length " + size + ".");
+        return position;
+    }
+
+    static Object create(Interpreter interpreter, List<Object> arguments) {
+        return new LoxArray();
+    }
+
+    /**
+     * filled(n, value)：长度为 n、每个元素都是 value 的数组
+     *
+     * 没有设置内存配额时（命令行的默认情况）也不能让一次分配拖垮进程：
+     * 超过堆上限的 n 直接报错，堆里剩余空间不足导致的 OutOfMemoryError 也转换为运行时错误。
+     */
+    static Object filled(Interpreter interpreter, List<Object> arguments) {
+        int length = count(arguments.get(0), "filled");
+        Object value = arguments.get(1);
+        interpreter.allocated(storageBytes(length));
+        if (storageBytes(length) > Runtime.getRuntime().maxMemory())
+            throw tooLarge(length);
+        try {
+            if (value instanceof Double) {
+                double[] numbers = new double[length];
+                Arrays.fill(numbers, (double) value);
+                return new LoxArray(numbers, null, length);
+            }
+            Object[] objects = new Object[length];
+            Arrays.fill(objects, value);
+            return new LoxArray(null, objects, length);
+        } catch (OutOfMemoryError error) {
+            throw tooLarge(length);
+        }
+    }
+
+    private static RuntimeError tooLarge(int length) {
+        return new RuntimeError(null, "Cannot allocate an array of " + length + " elements.");
+    }
+
+    static Object push(Interpreter interpreter, List<Object> arguments) {
+        array(arguments.get(0), "push").add(interpreter, arguments.get(1));
+        return null;
+    }
+
+    /**
+     * pop(a)：删除并返回最后一个元素
+     */
+    static Object pop(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "pop");
+        if (array.size == 0)
+            throw new RuntimeError(null, "Can't pop from an empty array.");
+        Object last = array.get(array.size - 1);
+        if (array.objects != null)
+            array.objects[array.size - 1] = null;
+        array.size--;
+        return last;
+    }
+
+    /**
+     * len(a)：数组的长度，也可用于映射（条目数）和字符串（UTF-16 代码单元数）
+     */
+    static Object len(Interpreter interpreter, List<Object> arguments) {
+        Object value = arguments.get(0);
+        if (value instanceof LoxMap)
+            return (double) ((LoxMap) value).size();
+        // LoxRope 记录了长度，不必展开
+        if (LoxRope.isString(value))
+            return (double) ((CharSequence) value).length();
+        return (double) array(value, "len").size;
+    }
+
+    /**
+     * fill(a, value)：把所有元素设为 value
+     */
+    static Object fill(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "fill");
+        Object value = arguments.get(1);
+        if (array.numbers != null && !(value instanceof Double))
+            array.generalize(interpreter);
+        if (array.numbers != null) {
+            Arrays.fill(array.numbers, 0, array.size, (double) value);
+        } else {
+            Arrays.fill(array.objects, 0, array.size, value);
+        }
+        return null;
+    }
+
+    /**
+     * slice(a, from, to)：下标 [from, to) 的元素组成的新数组
+     */
+    static Object slice(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "slice");
+        int from = count(arguments.get(1), "slice");
+        int to = count(arguments.get(2), "slice");
+        if (from > to || to > array.size)
+            throw new RuntimeError(null, "Slice range [" + from + ", " + to
+                    + ") is out of bounds for length " + array.size + ".");
+        interpreter.allocated(storageBytes(to - from));
+        if (array.numbers != null)
+            return new LoxArray(Arrays.copyOfRange(array.numbers, from, to), null, to - from);
+        return new LoxArray(null, Arrays.copyOfRange(array.objects, from, to), to - from);
+    }
+
+    /**
+     * extend(a, b)：把 b 的所有元素追加到 a 的末尾
+     */
+    static Object extend(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "extend");
+        LoxArray other = array(arguments.get(1), "extend");
+        int count = other.size;
+        array.ensureCapacity(interpreter, array.size + count);
+        if (array.numbers != null && other.numbers != null) {
+            System.arraycopy(other.numbers, 0, array.numbers, array.size, count);
+        } else {
+            if (array.numbers != null)
+                array.generalize(interpreter);
+            if (other.numbers != null) {
+                for (int i = 0; i < count; i++) {
+                    array.objects[array.size + i] = other.numbers[i];
+                }
+            } else {
+                System.arraycopy(other.objects, 0, array.objects, array.size, count);
+            }
+        }
+        array.size += count;
+        return null;
+    }
+
+    /**
+     * sort(a)：原地升序排序，元素必须全是数字或全是字符串
+     *
+     * 按元素判断而不是按存储判断：转换成 Object[] 之后又被改回全是数字的数组，
+     * 先换回 double[] 存储再按数字排序。
+     */
+    static Object sort(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "sort");
+        if (array.numbers == null) {
+            double[] numbers = array.numbers();
+            if (numbers != null) {
+                interpreter.allocated(storageBytes(numbers.length));
+                array.numbers = numbers;
+                array.objects = null;
+            }
+        }
+        if (array.numbers != null) {
+            Arrays.sort(array.numbers, 0, array.size);
+            return null;
+        }
+        for (int i = 0; i < array.size; i++) {
+            if (!LoxRope.isString(array.objects[i]))
+                throw new RuntimeError(null, "sort() requires an array of only numbers or only strings.");
+            array.objects[i] = LoxRope.flatten(array.objects[i]);
+        }
+        Arrays.sort(array.objects, 0, array.size);
+        return null;
+    }
+
+    /**
+     * reverse(a)：原地反转
+     */
+    static Object reverse(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "reverse");
+        for (int i = 0, j = array.size - 1; i < j; i++, j--) {
+            if (array.numbers != null) {
+                double swap = array.numbers[i];
+                array.numbers[i] = array.numbers[j];
+                array.numbers[j] = swap;
+            } else {
+                Object swap = array.objects[i];
+                array.objects[i] = array.objects[j];
+                array.objects[j] = swap;
+            }
+        }
+        return null;
+    }
+
+    static LoxArray array(Object value, String function) {
+        if (value instanceof LoxArray)
+            return (LoxArray) value;
+        throw new RuntimeError(null, "First argument to " + function + "() must be an array.");
+    }
+
+    /**
+     * 长度或区间端点：非负整数
+     */
+    private static int count(Object value, String function) {
+        if (value instanceof Double) {
+            double number = (double) value;
+            if (number >= 0 && number <= Integer.MAX_VALUE && number == Math.floor(number))
+                return (int) number;
+        }
+        throw new RuntimeError(null, "Arguments to " + function + "() must be non-negative integers.");
+    }
+
+    /**
+     * 开始打印一个数组或映射
+     *
+     * @return 它已经在打印中（包含自身）时返回 false，调用方打印 [...] 或 {...} 代替
+     */
+    static boolean enterPrinting(Object container) {
+        return printing.get().add(container);
+    }
+
+    static void exitPrinting(Object container) {
+        printing.get().remove(container);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        if (numbers != null) {
+            for (int i = 0; i < size; i++) {
+                if (i > 0)
+                    text.append(", ");
+                NumberFormatter.appendTo(text, numbers[i]);
+            }
+            return text.append(']').toString();
+        }
+
+        if (!enterPrinting(this))
+            return "[...]";
+        try {
+            for (int i = 0; i < size; i++) {
+                if (i > 0)
+                    text.append(", ");
+                text.append(Interpreter.stringify(objects[i]));
+            }
+        } finally {
+            exitPrinting(this);
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.craftinginterpreters.lox;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+/**
+ * 直接映射到 Lox 全局变量的 javax.script Bindings
+ *
+ * 每个 LoxBindings 拥有一个 LoxIsolate，读写都直接作用于其全局环境，不做复制：
+ * Java 中 put 的值脚本立即可见，脚本定义的全局变量 Java 中立即可读。
+ *
+ * 值在边界上做最少的转换：Java 的其他数字类型转为 Double（Lox 只有一种数字），
+ * Character 转为 String；读出时 LoxRope 展开为 String。
+ */
+final class LoxBindings extends AbstractMap<String, Object> implements Bindings {
+    final LoxIsolate isolate;
+    private final Environment globals;
+    private final ContextWriter output = new ContextWriter();
+
+    LoxBindings() {
+        // 错误通过 ScriptException 交给调用方，不再另外输出
+        isolate = new LoxIsolate(new PrintWriter(output, true), new PrintWriter(Writer.nullWriter()));
+        globals = isolate.interpreter.globals;
+    }
+
+    /**
+     * 设置本次执行中 print 语句的输出位置
+     */
+    void setWriter(Writer writer) {
+        output.target = writer;
+    }
+
+    static Object toLox(Object value) {
+        if (value instanceof Number && !(value instanceof Double))
+            return ((Number) value).doubleValue();
+        if (value instanceof Character)
+            return value.toString();
+        return value;
+    }
+
+    static Object toJava(Object value) {
+        return value instanceof LoxRope ? value.toString() : value;
+    }
+
+    private static Symbol symbol(Object key) {
+        if (key == null)
+            throw new NullPointerException("key can not be null");
+        if (!(key instanceof String))
+            throw new ClassCastException("key should be a String");
+        if (((String) key).isEmpty())
+            throw new IllegalArgumentException("key can not be empty");
+        return Symbol.intern((String) key);
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+        Symbol symbol = symbol(name);
+        Object previous = globals.isDefined(symbol) ? toJava(globals.getAt(0, symbol)) : null;
+        globals.define(symbol, toLox(value));
+        return previous;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Symbol symbol = symbol(key);
+        return globals.isDefined(symbol) ? toJava(globals.getAt(0, symbol)) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return globals.isDefined(symbol(key));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return toJava(globals.remove(symbol(key)));
+    }
+
+    @Override
+    public int size() {
+        return globals.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return globals.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                // 遍历变量名快照，值总是从环境中实时读取
+                Symbol[] names = globals.names();
+                return new Iterator<Entry<String, Object>>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next == names.length)
+                            throw new NoSuchElementException();
+                        return new GlobalEntry(names[next++]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (next == 0)
+                            throw new IllegalStateException();
+                        globals.remove(names[next - 1]);
+                    }
+                };
+            }
+        };
+    }
+
+    private final class GlobalEntry implements Entry<String, Object> {
+        private final Symbol symbol;
+
+        GlobalEntry(Symbol symbol) {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public String getKey() {
+            return symbol.name;
+        }
+
+        @Override
+        public Object getValue() {
+            return toJava(globals.getAt(0, symbol));
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = getValue();
+            globals.define(symbol, toLox(value));
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Map.Entry))
+                return false;
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+    }
+
+    /**
+     * 转发到当前 ScriptContext 的 Writer
+     */
+    private static final class ContextWriter extends Writer {
+        Writer target = new PrintWriter(System.out, true);
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            target.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            target.write(text, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务之间传递值的通道（channel / send / receive 原生函数）
+ *
+ * 无界 FIFO 队列：send 从不阻塞，receive 在队列为空时阻塞。
+ * 阻塞发生在虚拟线程上时只挂起虚拟线程，不占用载体线程。
+ * 传递的是值本身，实例按引用共享，不做拷贝。
+ */
+final class LoxChannel {
+    // BlockingQueue 不接受 null，nil 用这个占位
+    private static final Object NIL = new Object();
+
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    static Object create(Interpreter interpreter, List<Object> arguments) {
+        return new LoxChannel();
+    }
+
+    static Object send(Interpreter interpreter, List<Object> arguments) {
+        Object value = arguments.get(1);
+        channel(arguments.get(0), "send").queue.add(value == null ? NIL : value);
+        return null;
+    }
+
+    /**
+     * 取出最早发送的值，设置了执行时间上限时最多等到截止时间
+     */
+    static Object receive(Interpreter interpreter, List<Object> arguments) {
+        LoxChannel channel = channel(arguments.get(0), "receive");
+        long nanos = interpreter.remainingNanos();
+        Object value;
+        try {
+            value = nanos == Long.MAX_VALUE
+                    ? channel.queue.take()
+                    : channel.queue.poll(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError(null, "Interrupted while waiting on a channel.");
+        }
+        if (value == null)
+            throw new RuntimeError(null, "Execution time limit exceeded.");
+        return value == NIL ? null : value;
+    }
+
+    private static LoxChannel channel(Object value, String function) {
+        if (value instanceof LoxChannel)
+            return (LoxChannel) value;
+        throw new RuntimeError(null, "First argument to " + function + "() must be a channel.");
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
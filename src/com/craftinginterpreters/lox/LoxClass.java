@@ -2,18 +2,18 @@ package com.craftinginterpreters.lox;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 class LoxClass implements LoxCallable {
     final String name;
     final List<LoxClass> superclasses;  // 支持多继承
 
-    private final Map<String, LoxFunction> methods;
+    private final SymbolMap<LoxFunction> methods;
 
-    LoxFunction findMethod(String name) {
+    LoxFunction findMethod(Symbol name) {
         // 先在自己的方法中查找
-        if (methods.containsKey(name)) {
-            return methods.get(name);
+        LoxFunction own = methods.get(name);
+        if (own != null) {
+            return own;
         }
 
         // 按顺序在所有父类中查找（先声明的父类优先）
@@ -27,14 +27,14 @@ class LoxClass implements LoxCallable {
         return null;
     }
 
-    LoxClass(String name, List<LoxClass> superclasses, Map<String, LoxFunction> methods) {
+    LoxClass(String name, List<LoxClass> superclasses, SymbolMap<LoxFunction> methods) {
         this.name = name;
         this.methods = methods;
         this.superclasses = superclasses != null ? superclasses : new ArrayList<>();
     }
 
     // 兼容旧代码
-    LoxClass(String name, LoxClass superclass, Map<String, LoxFunction> methods) {
+    LoxClass(String name, LoxClass superclass, SymbolMap<LoxFunction> methods) {
         this.name = name;
         this.methods = methods;
         this.superclasses = new ArrayList<>();
@@ -47,7 +47,7 @@ class LoxClass implements LoxCallable {
      * 在所有父类中查找方法（用于 super 调用）
      * 与 findMethod 不同，这个方法只在父类中查找，不查找自身
      */
-    LoxFunction findMethodInSuperclasses(String name) {
+    LoxFunction findMethodInSuperclasses(Symbol name) {
         for (LoxClass superclass : superclasses) {
             LoxFunction method = superclass.findMethod(name);
             if (method != null) {
@@ -64,7 +64,7 @@ class LoxClass implements LoxCallable {
 
     @Override
     public int arity() {
-        LoxFunction initializer = findMethod("init");
+        LoxFunction initializer = findMethod(Symbol.INIT);
         if (initializer == null)
             return 0;
         return initializer.arity();
@@ -73,8 +73,10 @@ class LoxClass implements LoxCallable {
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
         LoxInstance instance = new LoxInstance(this);
-        LoxFunction initializer = findMethod("init");
+        interpreter.instanceAllocated();
+        LoxFunction initializer = findMethod(Symbol.INIT);
         if (initializer != null) {
+            interpreter.boundMethodAllocated();
             initializer.bind(instance).call(interpreter, arguments);
         }
         return instance;
@@ -0,0 +1,252 @@
+package com.craftinginterpreters.lox;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 常驻模式（jlox --daemon &lt;socket&gt;）
+ *
+ * 短脚本的耗时大部分花在 JVM 启动和冷 JIT 上。常驻进程在 Unix 域套接字上接收请求，
+ * 每个请求在新的 LoxIsolate 中执行（全局变量互不影响），多个请求在虚拟线程上并发执行。
+ * JIT 编译好的解释器代码和编译过的脚本（CompiledScript，按源码缓存）在请求之间保留。
+ *
+ * 客户端：jlox --connect &lt;socket&gt; script，输出和退出码（65 / 70）与直接运行 jlox script 相同。
+ *
+ * 常驻进程由所有请求共用，单个请求不能拖垮它：源码超过 MAX_SOURCE_BYTES 的请求直接拒绝；
+ * 每个请求有墙钟时间和内存配额的限制（默认 DEFAULT_TIMEOUT 和 DEFAULT_MEMORY_LIMIT，
+ * 可用 --timeout / --max-memory 调整），超出时脚本以运行时错误结束（退出码 70）。
+ *
+ * 协议（DataOutputStream 编码）：
+ * - 请求：UTF 字符串 "path" 加脚本绝对路径，或 "source" 加 int 长度和 UTF-8 源码
+ * - 响应：若干帧，每帧一个字节类型：1 标准输出、2 标准错误（后跟 int 长度和 UTF-8 内容），
+ *   0 结束（后跟 int 退出码）
+ */
+final class LoxDaemon {
+    private static final int CACHE_SIZE = 256;
+    private static final byte STDOUT = 1;
+    private static final byte STDERR = 2;
+    private static final byte EXIT = 0;
+    // 读取脚本失败（sysexits 的 EX_IOERR），与 jlox 其他退出码同属 sysexits
+    static final int IO_ERROR = 74;
+    // stat 的 st_mode 中表示文件类型的位，以及其中 Unix 域套接字的取值
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+    // 单个请求的源码上限；按对方声明的长度分配之前先检查，负数或过大的长度直接拒绝
+    private static final int MAX_SOURCE_BYTES = 16 << 20;
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+    // 配额按累计分配计（见 MemoryQuota）：每次循环迭代、函数调用都会记入一个环境，
+    // 所以上限要远大于堆，主要拦住一次性的巨大分配（filled、mapWithCapacity）和成倍增长的字符串
+    static final long DEFAULT_MEMORY_LIMIT = 16L << 30;
+
+    private final Map<String, CompiledScript> cache = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Duration timeout;
+    private final long memoryLimit;
+
+    private LoxDaemon(Duration timeout, long memoryLimit) {
+        this.timeout = timeout;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * 在 socket 上接收请求，直到进程被终止
+     *
+     * @param timeout     每个请求的墙钟时间上限
+     * @param memoryLimit 每个请求的内存配额（字节）
+     */
+    static void serve(Path socket, Duration timeout, long memoryLimit) throws IOException {
+        removeStaleSocket(socket);
+        LoxDaemon daemon = new LoxDaemon(timeout, memoryLimit);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            socket.toFile().deleteOnExit();
+            System.err.println("jlox daemon listening on " + socket);
+            for (;;) {
+                SocketChannel client = server.accept();
+                workers.submit(() -> daemon.handle(client));
+            }
+        }
+    }
+
+    /**
+     * 删除上次常驻进程遗留的套接字文件
+     *
+     * 只删除没有进程在监听的 Unix 域套接字：路径上是普通文件（例如把脚本名误写成
+     * --daemon 的参数）或目录时拒绝启动，不删除；套接字还能连上说明已有常驻进程在运行，同样拒绝。
+     */
+    private static void removeStaleSocket(Path socket) throws IOException {
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS))
+            return;
+        int mode = (Integer) Files.getAttribute(socket, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        if ((mode & S_IFMT) != S_IFSOCK)
+            throw new IOException(socket + " exists and is not a socket; refusing to replace it");
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            throw new IOException(socket + " is in use by another jlox daemon");
+        } catch (ConnectException e) {
+            // 没有进程在监听，是遗留的套接字
+        }
+        Files.delete(socket);
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+                DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client))) {
+            int status;
+            try {
+                status = execute(readRequest(in), out);
+            } catch (IOException e) {
+                PrintWriter stderr = new PrintWriter(new FrameWriter(out, STDERR), true);
+                stderr.println("Cannot read script: " + e.getMessage());
+                status = IO_ERROR;
+            }
+            synchronized (out) {
+                out.writeByte(EXIT);
+                out.writeInt(status);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 客户端提前断开，放弃这次请求
+        }
+    }
+
+    private static String readRequest(DataInputStream in) throws IOException {
+        String kind = in.readUTF();
+        if (kind.equals("path")) {
+            Path path = Path.of(in.readUTF());
+            if (Files.size(path) > MAX_SOURCE_BYTES)
+                throw new IOException(path + " is larger than " + MAX_SOURCE_BYTES + " bytes");
+            return new String(Files.readAllBytes(path), Charset.defaultCharset());
+        }
+        if (!kind.equals("source"))
+            throw new IOException("unknown request '" + kind + "'");
+        int length = in.readInt();
+        if (length < 0 || length > MAX_SOURCE_BYTES)
+            throw new IOException("source length " + length + " is not between 0 and " + MAX_SOURCE_BYTES);
+        byte[] source = new byte[length];
+        in.readFully(source);
+        return new String(source, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 在新的隔离实例中编译（或取缓存）并执行，与 jlox script 的输出顺序一致：先打印语法树
+     */
+    private int execute(String source, DataOutputStream out) {
+        PrintWriter stdout = new PrintWriter(new FrameWriter(out, STDOUT), true);
+        PrintWriter stderr = new PrintWriter(new FrameWriter(out, STDERR), true);
+        LoxIsolate isolate = new LoxIsolate(stdout, stderr);
+        isolate.setLimits(Long.MAX_VALUE, timeout);
+        isolate.setMemoryLimit(memoryLimit);
+
+        CompiledScript script;
+        synchronized (cache) {
+            script = cache.get(source);
+        }
+        if (script != null) {
+            stdout.println(new AstTreePrinter().print(script.statements));
+        } else {
+            script = CompiledScript.compile(source, isolate.diagnostics, null, stdout);
+            if (script == null)
+                return LoxIsolate.COMPILE_ERROR;
+            synchronized (cache) {
+                cache.put(source, script);
+            }
+        }
+        return isolate.run(script);
+    }
+
+    /**
+     * 把写入的文本按帧发送给客户端，每次 flush（即每次 println）发送一帧
+     */
+    private static final class FrameWriter extends Writer {
+        private final DataOutputStream out;
+        private final byte type;
+        private final StringBuilder pending = new StringBuilder();
+
+        FrameWriter(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            pending.append(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (pending.length() == 0)
+                return;
+            byte[] bytes = pending.toString().getBytes(StandardCharsets.UTF_8);
+            pending.setLength(0);
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 客户端：把脚本路径发给常驻进程，转发输出，返回脚本的退出码
+     */
+    static int connect(Path socket, Path script) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+                DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+            out.writeUTF("path");
+            out.writeUTF(script.toAbsolutePath().toString());
+            out.flush();
+
+            for (;;) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    System.err.println("jlox daemon closed the connection.");
+                    return LoxIsolate.RUNTIME_ERROR;
+                }
+                if (type == EXIT)
+                    return in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                PrintStream target = type == STDOUT ? System.out : System.err;
+                target.print(new String(bytes, StandardCharsets.UTF_8));
+                target.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.craftinginterpreters.lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 解释器的 Java Flight Recorder 自定义事件
+ *
+ * 录制时这些事件与 GC、JIT 等 JVM 事件出现在同一条时间线上，可以直接看出
+ * 某次 GC 停顿或去优化发生在哪个 Lox 函数、哪个解析阶段。
+ *
+ * 未开启录制时 shouldCommit() 返回 false，事件对象通常会被 JIT 逃逸分析消除，
+ * 只有开始/结束时读取时间戳的开销。Java 调用栈对 Lox 脚本没有意义，因此都不记录。
+ *
+ * 查看：jfr print --categories Lox recording.jfr
+ */
+final class LoxEvents {
+    private LoxEvents() {
+    }
+
+    @Name("lox.FunctionCall")
+    @Label("Lox Function Call")
+    @Category("Lox")
+    @Description("A Lox function or lambda call that ran longer than the threshold")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Call extends Event {
+        @Label("Function")
+        String function;
+
+        @Label("Line")
+        int line;
+    }
+
+    @Name("lox.ClassDefinition")
+    @Label("Lox Class Definition")
+    @Category("Lox")
+    @StackTrace(false)
+    static final class ClassDefinition extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Line")
+        int line;
+
+        @Label("Superclasses")
+        int superclasses;
+
+        @Label("Methods")
+        int methods;
+    }
+
+    @Name("lox.RuntimeError")
+    @Label("Lox Runtime Error")
+    @Category("Lox")
+    @StackTrace(false)
+    static final class RuntimeFailure extends Event {
+        @Label("Message")
+        String message;
+
+        @Label("Line")
+        int line;
+    }
+
+    @Name("lox.Phase")
+    @Label("Lox Phase")
+    @Category("Lox")
+    @Description("Scan, parse, resolve or execute phase of one script run")
+    @StackTrace(false)
+    static final class Phase extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Items")
+        @Description("Tokens for scan, statements for the other phases")
+        int items;
+    }
+
+    @Name("lox.ReplEvaluation")
+    @Label("Lox REPL Evaluation")
+    @Category("Lox")
+    @StackTrace(false)
+    static final class ReplEvaluation extends Event {
+        @Label("Source")
+        String source;
+    }
+
+    /**
+     * 结束一次函数调用事件，超过阈值时才填充字段并提交
+     *
+     * @param event 调用开始时 begin() 的事件
+     * @param name  函数名，匿名函数为 "<lambda>"
+     * @param line  函数声明所在行
+     */
+    static void endCall(Call event, String name, int line) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.function = name;
+            event.line = line;
+            event.commit();
+        }
+    }
+
+    static void endPhase(Phase event, String phase, int items) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.items = items;
+            event.commit();
+        }
+    }
+
+    static void classDefined(Stmt.Class stmt) {
+        ClassDefinition event = new ClassDefinition();
+        if (event.isEnabled()) {
+            event.className = stmt.name.lexeme;
+            event.line = stmt.name.line;
+            event.superclasses = stmt.superclasses.size();
+            event.methods = stmt.methods.size();
+            event.commit();
+        }
+    }
+
+    static void runtimeError(RuntimeError error) {
+        RuntimeFailure event = new RuntimeFailure();
+        if (event.isEnabled()) {
+            event.message = error.getMessage();
+            event.line = error.token.line;
+            event.commit();
+        }
+    }
+}
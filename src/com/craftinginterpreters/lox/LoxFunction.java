@@ -3,7 +3,7 @@ package com.craftinginterpreters.lox;
 import java.util.List;
 
 class LoxFunction implements LoxCallable {
-    private final Stmt.Function declaration;
+    final Stmt.Function declaration;
     private final Environment closure;
     private final boolean isInitializer;
 
@@ -16,7 +16,7 @@ class LoxFunction implements LoxCallable {
     LoxFunction bind(LoxInstance instance) {
 
         Environment environment = new Environment(closure);
-        environment.define("this", instance);
+        environment.define(Symbol.THIS, instance);
         return new LoxFunction(declaration, environment, isInitializer);
     }
 
@@ -28,23 +28,32 @@ class LoxFunction implements LoxCallable {
     @Override
     public Object call(Interpreter interpreter,
             List<Object> arguments) {
-        Environment environment = new Environment(closure);
+        Environment environment = interpreter.newEnvironment(closure);
         for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme,
+            environment.define(declaration.params.get(i).symbol,
                     arguments.get(i));
         }
+        SamplingProfiler profiler = interpreter.profiler;
+        if (profiler != null)
+            profiler.enter(declaration);
+        LoxEvents.Call event = new LoxEvents.Call();
+        event.begin();
         // 替换部分开始
         try {
             interpreter.executeBlock(declaration.body, environment);
         } catch (Return returnValue) {
             if (isInitializer)
-                return closure.getAt(0, "this");
+                return closure.getAt(0, Symbol.THIS);
 
             return returnValue.value;
+        } finally {
+            if (profiler != null)
+                profiler.exit();
+            LoxEvents.endCall(event, declaration.name.lexeme, declaration.name.line);
         }
         // 替换部分结束
         if (isInitializer)
-            return closure.getAt(0, "this");
+            return closure.getAt(0, Symbol.THIS);
 
         return null;
     }
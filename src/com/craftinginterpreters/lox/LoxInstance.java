@@ -1,18 +1,23 @@
 package com.craftinginterpreters.lox;
 
-import java.util.HashMap;
-import java.util.Map;
-
 class LoxInstance {
     private LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    private final SymbolMap<Object> fields = new SymbolMap<>();
 
     LoxInstance(LoxClass klass) {
         this.klass = klass;
     }
 
     void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+        fields.put(name.symbol, value);
+    }
+
+    boolean hasField(Symbol name) {
+        return fields.containsKey(name);
+    }
+
+    LoxFunction findMethod(Symbol name) {
+        return klass.findMethod(name);
     }
 
     /**
@@ -23,11 +28,11 @@ class LoxInstance {
      * @return
      */
     Object get(Token name) {
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+        if (fields.containsKey(name.symbol)) {
+            return fields.get(name.symbol);
         }
         // 新增部分开始
-        LoxFunction method = klass.findMethod(name.lexeme);
+        LoxFunction method = klass.findMethod(name.symbol);
         // 将方法体绑定隐含作用域的 this
         if (method != null)
             return method.bind(this);
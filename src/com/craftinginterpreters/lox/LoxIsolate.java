@@ -0,0 +1,212 @@
+package com.craftinginterpreters.lox;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 相互隔离的 Lox 运行实例
+ *
+ * 每个隔离实例拥有自己的解释器（全局变量、已解析的局部变量）、错误状态和输出位置，
+ * 不同实例之间不共享任何可变状态，因此可以在线程池或虚拟线程上并行运行多个脚本：
+ *
+ * <pre>
+ * try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+ *     for (String source : sources)
+ *         executor.submit(() -&gt; new LoxIsolate(out, err).run(source));
+ * }
+ * </pre>
+ *
+ * 同一个实例不是线程安全的，同一时刻只能由一个线程使用。
+ * 实例内可以连续运行多段代码，后一段能看到前一段定义的全局变量（REPL 就是这样使用的）。
+ */
+public final class LoxIsolate {
+    /** 执行成功 */
+    public static final int OK = 0;
+    /** 词法、语法或变量解析错误，与 jlox 的退出码一致 */
+    public static final int COMPILE_ERROR = 65;
+    /** 运行时错误，与 jlox 的退出码一致 */
+    public static final int RUNTIME_ERROR = 70;
+
+    final Interpreter interpreter;
+    final Diagnostics diagnostics;
+    private final PrintWriter out;
+    // 执行前打印 AST 语法树（jlox 命令行的原有行为）
+    boolean printAst = false;
+    private ExecutionBudget budget;
+    private MemoryQuota quota;
+
+    /**
+     * @param out print 语句的输出位置
+     * @param err 错误信息的输出位置
+     */
+    public LoxIsolate(PrintStream out, PrintStream err) {
+        this(writer(out), writer(err));
+    }
+
+    /**
+     * @param out print 语句的输出位置
+     * @param err 错误信息的输出位置
+     */
+    public LoxIsolate(Writer out, Writer err) {
+        this(new PrintWriter(out, true), new PrintWriter(err, true));
+    }
+
+    LoxIsolate(PrintWriter out, PrintWriter err) {
+        this.out = out;
+        this.diagnostics = new Diagnostics(err);
+        this.interpreter = new Interpreter(out, diagnostics);
+    }
+
+    /**
+     * 把 PrintStream 包装为每次 println 都刷新的 PrintWriter，沿用流自己的字符集
+     */
+    static PrintWriter writer(PrintStream stream) {
+        return new PrintWriter(new OutputStreamWriter(stream, stream.charset()), true);
+    }
+
+    /**
+     * 限制之后每次 run 的执行量，超出时以运行时错误终止脚本
+     *
+     * @param maxInstructions 允许的循环迭代和函数调用总次数，Long.MAX_VALUE 表示不限
+     * @param timeout         墙钟时间上限，null 表示不限
+     */
+    public void setLimits(long maxInstructions, Duration timeout) {
+        long timeoutNanos = timeout == null ? Long.MAX_VALUE : timeout.toNanos();
+        budget = maxInstructions == Long.MAX_VALUE && timeoutNanos == Long.MAX_VALUE
+                ? null
+                : new ExecutionBudget(maxInstructions, timeoutNanos);
+    }
+
+    /**
+     * 限制之后每次 run 中由 Lox 值（环境、实例、字段、拼接的字符串）分配的估算字节数，
+     * 超出时以运行时错误终止脚本，而不是等到整个 JVM 抛出 OutOfMemoryError
+     *
+     * @param maxBytes 一次运行允许分配的字节数，Long.MAX_VALUE 表示不限
+     */
+    public void setMemoryLimit(long maxBytes) {
+        quota = maxBytes == Long.MAX_VALUE ? null : new MemoryQuota(maxBytes);
+    }
+
+    /**
+     * 运行一段 Lox 源码
+     *
+     * @param source 源码
+     * @return OK、COMPILE_ERROR 或 RUNTIME_ERROR
+     */
+    public int run(String source) {
+        diagnostics.reset();
+        interpreter.setBudget(budget);
+        interpreter.setMemoryQuota(quota);
+        execute(source);
+        return status();
+    }
+
+    /**
+     * 在本实例中执行编译好的脚本，可以看到本实例已有的全局变量
+     *
+     * @param script 编译结果，可以同时在其他实例中执行
+     * @return OK 或 RUNTIME_ERROR
+     */
+    public int run(CompiledScript script) {
+        diagnostics.reset();
+        interpreter.setBudget(budget);
+        interpreter.setMemoryQuota(quota);
+        execute(script);
+        return status();
+    }
+
+    /**
+     * 在本实例中调用 Lox 函数（javax.script 的 invokeFunction / invokeMethod 使用）
+     *
+     * 与 run 一样先装上本实例的执行限制和内存配额，返回前等待调用中 spawn 的任务。
+     *
+     * @return 函数的返回值
+     * @throws RuntimeError 函数或它 spawn 的任务出错时
+     */
+    Object call(LoxCallable function, List<Object> arguments) {
+        diagnostics.reset();
+        interpreter.setBudget(budget);
+        interpreter.setMemoryQuota(quota);
+        return interpreter.invoke(function, arguments);
+    }
+
+    /**
+     * 编译一段源码，编译错误输出到本实例的错误输出
+     *
+     * @return 编译结果，有错误时返回 null
+     */
+    public CompiledScript compile(String source) {
+        diagnostics.reset();
+        return CompiledScript.compile(source, diagnostics, interpreter.metrics, printAst ? out : null);
+    }
+
+    /**
+     * REPL 智能执行：支持表达式自动求值打印和语句执行
+     *
+     * 策略：
+     * 1. 如果输入不以分号结尾，先尝试作为表达式解析
+     * 2. 表达式解析成功则求值并打印结果
+     * 3. 表达式解析失败或输入以分号结尾，则作为语句执行
+     *
+     * @return OK、COMPILE_ERROR 或 RUNTIME_ERROR
+     */
+    int evaluate(String source) {
+        diagnostics.reset();
+        // 先尝试作为表达式解析（如果不以分号结尾）
+        if (!source.trim().endsWith(";")) {
+            Scanner scanner = new Scanner(source, diagnostics);
+            List<Token> tokens = scanner.scanTokens();
+            Parser parser = new Parser(tokens, diagnostics);
+            Expr expression = parser.parseExpression();
+
+            if (expression != null && !diagnostics.hadError) {
+                // 成功解析为表达式，求值并打印结果
+                String result = interpreter.interpretExpression(expression);
+                if (result != null) {
+                    out.println(result);
+                }
+                return status();
+            }
+
+            // 表达式解析失败，重置错误状态，尝试作为语句处理
+            diagnostics.hadError = false;
+        }
+
+        // 作为语句执行
+        execute(source);
+        return status();
+    }
+
+    private int status() {
+        if (diagnostics.hadError)
+            return COMPILE_ERROR;
+        if (diagnostics.hadRuntimeError)
+            return RUNTIME_ERROR;
+        return OK;
+    }
+
+    private void execute(String source) {
+        CompiledScript script = CompiledScript.compile(source, diagnostics, interpreter.metrics,
+                printAst ? out : null);
+        if (script != null)
+            execute(script);
+    }
+
+    private void execute(CompiledScript script) {
+        if (interpreter.counters != null)
+            interpreter.counters.register(script.statements);
+
+        LoxEvents.Phase phase = new LoxEvents.Phase();
+        phase.begin();
+        long started = System.nanoTime();
+        interpreter.interpret(script);
+        LoxEvents.endPhase(phase, "execute", script.statements.size());
+        InterpreterMetrics metrics = interpreter.metrics;
+        if (metrics != null)
+            metrics.executeNanos.add(System.nanoTime() - started);
+    }
+}
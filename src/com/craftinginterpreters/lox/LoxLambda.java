@@ -8,7 +8,7 @@ import java.util.List;
  * 与 LoxFunction 类似，但不绑定到名称
  */
 class LoxLambda implements LoxCallable {
-    private final Expr.Function declaration;
+    final Expr.Function declaration;
 
     LoxLambda(Expr.Function declaration) {
         this.declaration = declaration;
@@ -21,15 +21,25 @@ class LoxLambda implements LoxCallable {
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
-        Environment environment = new Environment(interpreter.globals);
+        Environment environment = interpreter.newEnvironment(interpreter.globals);
         for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme, arguments.get(i));
+            environment.define(declaration.params.get(i).symbol, arguments.get(i));
         }
 
+        SamplingProfiler profiler = interpreter.profiler;
+        if (profiler != null)
+            profiler.enter(declaration);
+        LoxEvents.Call event = new LoxEvents.Call();
+        event.begin();
         try {
             interpreter.executeBlock(declaration.body, environment);
         } catch (Return returnValue) {
             return returnValue.value;
+        } finally {
+            if (profiler != null)
+                profiler.exit();
+            LoxEvents.endCall(event, "<lambda>",
+                    declaration.params.isEmpty() ? 0 : declaration.params.get(0).line);
         }
 
         return null;
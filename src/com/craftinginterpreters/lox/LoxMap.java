@@ -0,0 +1,261 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * Lox 的原生映射：键为字符串或数字，按插入顺序遍历
+ *
+ * 条目按插入顺序紧密地存放在 keys / values / hashes 三个数组中；
+ * 另有一张开放寻址（线性探测）的索引表，槽位里存条目下标加一，0 表示空槽。
+ * 键里的 LoxRope 在进入映射时展开一次，之后键只有 String 和 Double 两种：
+ * 散列值直接取自 String（已缓存）或 Double 的 hashCode，存在条目旁边；
+ * 查找先比较散列值，相同再调用 equals，不经过通用的 Lox 相等比较。
+ * Double.equals 与 Lox 的 == 一致：NaN 等于自身，0 与 -0 不等。
+ *
+ * 删除只把条目标记为 REMOVED，索引槽保持占用，探测链不会断开；
+ * 扩容或删除过多时重建，一并压实条目数组。
+ *
+ * 原生函数：map、mapWithCapacity、put、get、has、remove、keys、values，
+ * 另外 m[k] / m[k] = v 以及 len(m) 也适用于映射。存储分配都会记入所在解释器的内存配额。
+ * 打印时，包含自身的映射在内层打印为 {...}。
+ *
+ * 与数组一样不是线程安全的。
+ */
+final class LoxMap {
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 8;
+    // mapWithCapacity 预分配的上限（条目和索引表共约 80 MB）。没有设置内存配额时
+    // 没有别的东西能拦住一次性的巨大分配，更大的 n 只预分配到这里，其余在插入时按需扩容
+    private static final int MAX_PRESIZE = 1 << 22;
+
+    // 按插入顺序存放的条目，[0, count) 有效，其中可能有 REMOVED
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int count;
+    private int size;
+
+    // 索引表，长度为 2 的幂且至少是条目容量的两倍，装载因子不超过 1/2
+    private int[] slots;
+    private int shift;
+
+    LoxMap(Interpreter interpreter, int capacity) {
+        allocate(interpreter, Math.max(MIN_CAPACITY, capacity));
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(Object key) {
+        key = LoxRope.flatten(key);
+        int entry = find(key, key.hashCode());
+        return entry >= 0 ? values[entry] : null;
+    }
+
+    boolean has(Object key) {
+        key = LoxRope.flatten(key);
+        return find(key, key.hashCode()) >= 0;
+    }
+
+    void put(Interpreter interpreter, Object key, Object value) {
+        key = LoxRope.flatten(key);
+        int hash = key.hashCode();
+        int entry = find(key, hash);
+        if (entry >= 0) {
+            values[entry] = value;
+            return;
+        }
+        if (count == keys.length)
+            resize(interpreter, size + 1);
+        insert(key, value, hash);
+    }
+
+    /**
+     * @return 被删除的值，键不存在时为 nil
+     */
+    Object remove(Object key) {
+        key = LoxRope.flatten(key);
+        int entry = find(key, key.hashCode());
+        if (entry < 0)
+            return null;
+        Object value = values[entry];
+        keys[entry] = REMOVED;
+        values[entry] = null;
+        size--;
+        return value;
+    }
+
+    /**
+     * 检查键的类型；m[k] 报错时由调用处给出位置
+     */
+    static void checkKey(Token at, Object key) {
+        if (!(key instanceof Double) && !LoxRope.isString(key))
+            throw new RuntimeError(at, "Map keys must be strings or numbers.");
+    }
+
+    private int slot(int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * @return 条目下标，不存在时返回 -1
+     */
+    private int find(Object key, int hash) {
+        int mask = slots.length - 1;
+        for (int i = slot(hash); ; i = (i + 1) & mask) {
+            int entry = slots[i] - 1;
+            if (entry < 0)
+                return -1;
+            // REMOVED 只等于它自己，已删除的条目不会被匹配到
+            if (hashes[entry] == hash && key.equals(keys[entry]))
+                return entry;
+        }
+    }
+
+    private void insert(Object key, Object value, int hash) {
+        int mask = slots.length - 1;
+        int i = slot(hash);
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = count + 1;
+        keys[count] = key;
+        values[count] = value;
+        hashes[count] = hash;
+        count++;
+        size++;
+    }
+
+    /**
+     * 按新的容量重建条目数组和索引表，丢掉已删除的条目
+     */
+    private void resize(Interpreter interpreter, int needed) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldCount = count;
+        // 删除的条目占了一半以上时原地压实即可，否则容量翻倍
+        int capacity = needed * 2 <= keys.length ? keys.length : Math.max(needed, keys.length * 2);
+        allocate(interpreter, capacity);
+        for (int i = 0; i < oldCount; i++) {
+            if (oldKeys[i] != REMOVED)
+                insert(oldKeys[i], oldValues[i], oldHashes[i]);
+        }
+    }
+
+    private void allocate(Interpreter interpreter, int capacity) {
+        int tableBits = 32 - Integer.numberOfLeadingZeros(capacity * 2 - 1);
+        interpreter.allocated(MemoryQuota.MAP_BYTES + MemoryQuota.MAP_ENTRY_BYTES * capacity
+                + MemoryQuota.MAP_SLOT_BYTES * (1L << tableBits));
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        slots = new int[1 << tableBits];
+        shift = 32 - tableBits;
+        count = 0;
+        size = 0;
+    }
+
+    private Object[] snapshot(Object[] source) {
+        Object[] elements = new Object[size];
+        for (int i = 0, j = 0; i < count; i++) {
+            if (keys[i] != REMOVED)
+                elements[j++] = source[i];
+        }
+        return elements;
+    }
+
+    static Object create(Interpreter interpreter, List<Object> arguments) {
+        return new LoxMap(interpreter, MIN_CAPACITY);
+    }
+
+    /**
+     * mapWithCapacity(n)：预先分配 n 个条目的空间，插入 n 个键之前不会扩容
+     *
+     * n 超过 MAX_PRESIZE 时只预分配 MAX_PRESIZE 个条目
+     */
+    static Object withCapacity(Interpreter interpreter, List<Object> arguments) {
+        Object capacity = arguments.get(0);
+        if (!(capacity instanceof Double) || (double) capacity < 0
+                || (double) capacity != Math.floor((double) capacity) || Double.isInfinite((double) capacity))
+            throw new RuntimeError(null, "Argument to mapWithCapacity() must be a non-negative integer.");
+        return new LoxMap(interpreter, (int) Math.min((double) capacity, MAX_PRESIZE));
+    }
+
+    /**
+     * put(m, key, value)：写入或覆盖
+     */
+    static Object put(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "put");
+        checkKey(null, arguments.get(1));
+        map.put(interpreter, arguments.get(1), arguments.get(2));
+        return null;
+    }
+
+    /**
+     * get(m, key)：键不存在时返回 nil
+     */
+    static Object get(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "get");
+        checkKey(null, arguments.get(1));
+        return map.get(arguments.get(1));
+    }
+
+    static Object has(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "has");
+        checkKey(null, arguments.get(1));
+        return map.has(arguments.get(1));
+    }
+
+    static Object remove(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "remove");
+        checkKey(null, arguments.get(1));
+        return map.remove(arguments.get(1));
+    }
+
+    /**
+     * keys(m)：按插入顺序排列的键组成的数组
+     */
+    static Object keys(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "keys");
+        return LoxArray.of(interpreter, map.snapshot(map.keys));
+    }
+
+    /**
+     * values(m)：与 keys(m) 顺序对应的值
+     */
+    static Object values(Interpreter interpreter, List<Object> arguments) {
+        LoxMap map = map(arguments.get(0), "values");
+        return LoxArray.of(interpreter, map.snapshot(map.values));
+    }
+
+    private static LoxMap map(Object value, String function) {
+        if (value instanceof LoxMap)
+            return (LoxMap) value;
+        throw new RuntimeError(null, "First argument to " + function + "() must be a map.");
+    }
+
+    @Override
+    public String toString() {
+        // 与 LoxArray 共用同一个正在打印的集合，数组和映射互相包含形成的环也能发现
+        if (!LoxArray.enterPrinting(this))
+            return "{...}";
+        StringBuilder text = new StringBuilder("{");
+        try {
+            boolean first = true;
+            for (int i = 0; i < count; i++) {
+                if (keys[i] == REMOVED)
+                    continue;
+                if (!first)
+                    text.append(", ");
+                first = false;
+                text.append(Interpreter.stringify(keys[i])).append(": ")
+                        .append(Interpreter.stringify(values[i]));
+            }
+        } finally {
+            LoxArray.exitPrinting(this);
+        }
+        return text.append('}').toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * parallelMap(array, fn) 和 parallelReduce(array, fn, init) 原生函数
+ *
+ * 数组按下标区间二分成 ForkJoin 任务，空闲的工作线程会窃取尚未开始的一半；
+ * 区间不超过 threshold 时由当前线程顺序处理。每段叶子区间使用一个 fork 出的
+ * Interpreter，执行状态互不干扰，预算和内存配额与调用者共享。
+ *
+ * 调用前用 SharedStateCheck 检查 fn，拒绝会写全局变量、外层函数捕获的变量，
+ * 或经由它们取到的对象的函数。这个检查不跟进方法调用和经由参数传入的函数，
+ * 例如 counter.increment() 在方法里修改字段就检查不到；fn 只要不通过这些途径
+ * 修改共享对象，各元素的计算之间就没有数据竞争，结果与顺序执行相同。
+ * parallelReduce 还要求 fn 满足结合律、init 是 fn 的单位元（例如求和时为 0），
+ * 因为每段区间都从 init 开始归约，再两两合并。
+ */
+final class LoxParallel {
+    // 每个工作线程平均分到的叶子区间数，让窃取有余地平衡不均匀的工作量
+    private static final int SPLITS_PER_THREAD = 4;
+
+    private LoxParallel() {
+    }
+
+    static Object map(Interpreter interpreter, List<Object> arguments) {
+        Object[] elements = LoxArray.array(arguments.get(0), "parallelMap").toArray();
+        LoxCallable function = checkedFunction(interpreter, arguments.get(1), 1, "parallelMap");
+        Object[] results = new Object[elements.length];
+        interpreter.forkJoinPool.invoke(new MapTask(interpreter, function, elements, results,
+                0, elements.length, threshold(interpreter, elements.length)));
+        return LoxArray.of(interpreter, results);
+    }
+
+    static Object reduce(Interpreter interpreter, List<Object> arguments) {
+        Object[] elements = LoxArray.array(arguments.get(0), "parallelReduce").toArray();
+        LoxCallable function = checkedFunction(interpreter, arguments.get(1), 2, "parallelReduce");
+        return interpreter.forkJoinPool.invoke(new ReduceTask(interpreter, function, elements,
+                arguments.get(2), 0, elements.length, threshold(interpreter, elements.length)));
+    }
+
+    private static LoxCallable checkedFunction(Interpreter interpreter, Object value, int arity, String name) {
+        if (!(value instanceof LoxCallable) || ((LoxCallable) value).arity() != arity) {
+            throw new RuntimeError(null, "Second argument to " + name + "() must be a function with "
+                    + arity + (arity == 1 ? " parameter." : " parameters."));
+        }
+        LoxCallable function = (LoxCallable) value;
+        String violation = SharedStateCheck.check(function, interpreter.globals);
+        if (violation != null)
+            throw new RuntimeError(null, "Function passed to " + name + "() " + violation);
+        return function;
+    }
+
+    private static int threshold(Interpreter interpreter, int length) {
+        int leaves = interpreter.forkJoinPool.getParallelism() * SPLITS_PER_THREAD;
+        return Math.max(1, length / leaves);
+    }
+
+    private static final class MapTask extends RecursiveAction {
+        private final Interpreter parent;
+        private final LoxCallable function;
+        private final Object[] elements;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        MapTask(Interpreter parent, LoxCallable function, Object[] elements, Object[] results,
+                int from, int to, int threshold) {
+            this.parent = parent;
+            this.function = function;
+            this.elements = elements;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                Interpreter worker = parent.fork();
+                for (int i = from; i < to; i++) {
+                    results[i] = function.call(worker, Collections.singletonList(elements[i]));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask(parent, function, elements, results, from, middle, threshold),
+                    new MapTask(parent, function, elements, results, middle, to, threshold));
+        }
+    }
+
+    private static final class ReduceTask extends RecursiveTask<Object> {
+        private final Interpreter parent;
+        private final LoxCallable function;
+        private final Object[] elements;
+        private final Object identity;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        ReduceTask(Interpreter parent, LoxCallable function, Object[] elements, Object identity,
+                int from, int to, int threshold) {
+            this.parent = parent;
+            this.function = function;
+            this.elements = elements;
+            this.identity = identity;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Object compute() {
+            if (to - from <= threshold) {
+                Interpreter worker = parent.fork();
+                Object accumulator = identity;
+                for (int i = from; i < to; i++) {
+                    accumulator = function.call(worker, Arrays.asList(accumulator, elements[i]));
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            ReduceTask left = new ReduceTask(parent, function, elements, identity, from, middle, threshold);
+            ReduceTask right = new ReduceTask(parent, function, elements, identity, middle, to, threshold);
+            right.fork();
+            Object leftResult = left.compute();
+            Object rightResult = right.join();
+            return function.call(parent.fork(), Arrays.asList(leftResult, rightResult));
+        }
+    }
+}
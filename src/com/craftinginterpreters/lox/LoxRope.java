@@ -0,0 +1,138 @@
+package com.craftinginterpreters.lox;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+
+/**
+ * 字符串拼接的惰性表示（rope / cons string）
+ *
+ * 在循环中反复执行 s = s + "..." 时，如果每一步都生成新的扁平 String，
+ * 总拷贝量是 O(n²)。拼接结果改为只记录左右两段，直到需要真正的字符内容时
+ * （打印、比较、判等、按下标访问）才一次性展开为 String，并缓存展开结果。
+ *
+ * 运行时的 Lox 字符串因此可能是 String 或 LoxRope，两者都实现 CharSequence。
+ * 需要扁平字符串的地方使用 {@link #flatten(Object)}。
+ *
+ * 展开后左右两段不再需要，置为 null 让它们可以被回收，否则展开过的长字符串
+ * 会一直连带着整棵拼接树。spawn 的任务可能同时展开同一个 rope：先写 flat，
+ * 再以 release 语义清空子节点；读取子节点用 acquire 语义，读到 null 时 flat 一定已经可见。
+ */
+final class LoxRope implements CharSequence {
+    // 拼接结果不超过这个长度时直接生成扁平字符串，避免为短字符串建立节点
+    static final int FLAT_THRESHOLD = 64;
+    private static final VarHandle LEFT;
+    private static final VarHandle RIGHT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            LEFT = lookup.findVarHandle(LoxRope.class, "left", CharSequence.class);
+            RIGHT = lookup.findVarHandle(LoxRope.class, "right", CharSequence.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // 展开之后置为 null
+    private CharSequence left;
+    private CharSequence right;
+    private final int length;
+    private String flat;
+
+    private LoxRope(CharSequence left, CharSequence right, int length) {
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    /**
+     * 拼接两个 Lox 字符串（String 或 LoxRope）
+     *
+     * @return 短结果返回 String，否则返回 LoxRope
+     */
+    static CharSequence concat(CharSequence left, CharSequence right) {
+        if (left.length() == 0)
+            return right;
+        if (right.length() == 0)
+            return left;
+
+        int length = Math.addExact(left.length(), right.length());
+        if (length <= FLAT_THRESHOLD) {
+            return new StringBuilder(length).append(left).append(right).toString();
+        }
+        return new LoxRope(left, right, length);
+    }
+
+    /**
+     * 如果是 LoxRope 则展开为 String，其他值原样返回
+     */
+    static Object flatten(Object value) {
+        if (value instanceof LoxRope) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * 判断运行时值是否为 Lox 字符串
+     */
+    static boolean isString(Object value) {
+        return value instanceof String || value instanceof LoxRope;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * 展开为扁平字符串
+     *
+     * 左倾的 rope 深度与拼接次数相同，因此用显式栈代替递归，避免 StackOverflowError。
+     */
+    @Override
+    public String toString() {
+        String result = flat;
+        if (result != null)
+            return result;
+
+        char[] chars = new char[length];
+        int position = 0;
+        ArrayDeque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            CharSequence part = pending.pop();
+            if (part instanceof LoxRope) {
+                LoxRope rope = (LoxRope) part;
+                CharSequence ropeLeft = (CharSequence) LEFT.getAcquire(rope);
+                CharSequence ropeRight = (CharSequence) RIGHT.getAcquire(rope);
+                if (ropeLeft != null && ropeRight != null && rope.flat == null) {
+                    pending.push(ropeRight);
+                    pending.push(ropeLeft);
+                    continue;
+                }
+                part = rope.flat;
+            }
+            String text = (String) part;
+            text.getChars(0, text.length(), chars, position);
+            position += text.length();
+        }
+
+        result = new String(chars);
+        flat = result;
+        LEFT.setRelease(this, null);
+        RIGHT.setRelease(this, null);
+        return result;
+    }
+}
@@ -0,0 +1,295 @@
+package com.craftinginterpreters.lox;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+
+/**
+ * Lox 的 JSR-223 引擎，支持 Compilable 和 Invocable
+ *
+ * - ENGINE_SCOPE 的 Bindings 是 LoxBindings，直接映射到一个隔离实例的全局变量
+ * - 编译结果（CompiledScript）按源码缓存，重复 eval 同一段源码不会重新扫描、解析和 resolve
+ * - invokeFunction / invokeMethod 直接调用已定义的 Lox 函数，不经过任何源码
+ *
+ * 如果调用方传入的 ENGINE_SCOPE 不是 createBindings() 创建的，会在新的隔离实例中执行：
+ * 先把其中的值定义为全局变量，执行后再把全局变量写回，这条路径需要复制。
+ *
+ * 与 LoxIsolate 一样，同一个引擎同一时刻只能由一个线程使用；多线程请为每个线程创建引擎，
+ * 它们可以共享同一个 CompiledScript。
+ */
+public final class LoxScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+    private static final int CACHE_SIZE = 256;
+
+    private final LoxScriptEngineFactory factory;
+    private final Map<String, CompiledScript> cache = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    LoxScriptEngine(LoxScriptEngineFactory factory) {
+        this.factory = factory;
+        setBindings(createBindings(), ScriptContext.ENGINE_SCOPE);
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return execute(compileSource(script, context), context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new LoxBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public javax.script.CompiledScript compile(String script) throws ScriptException {
+        return new Compiled(compileSource(script, context));
+    }
+
+    @Override
+    public javax.script.CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    /**
+     * 编译源码，命中缓存时直接返回之前的结果
+     */
+    private CompiledScript compileSource(String source, ScriptContext context) throws ScriptException {
+        CompiledScript script = cache.get(source);
+        if (script != null)
+            return script;
+
+        Diagnostics diagnostics = new Diagnostics(new PrintWriter(Writer.nullWriter()));
+        script = CompiledScript.compile(source, diagnostics, null, null);
+        if (script == null)
+            throw new ScriptException(diagnostics.firstError, fileName(context), diagnostics.firstErrorLine);
+        cache.put(source, script);
+        return script;
+    }
+
+    private Object execute(CompiledScript script, ScriptContext context) throws ScriptException {
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        if (bindings instanceof LoxBindings)
+            return execute(script, (LoxBindings) bindings, context);
+
+        // 外部提供的 Bindings：复制进新的隔离实例，执行后写回（原生函数除外）
+        LoxBindings globals = new LoxBindings();
+        List<String> natives = new ArrayList<>(globals.keySet());
+        globals.putAll(bindings);
+        try {
+            return execute(script, globals, context);
+        } finally {
+            for (Map.Entry<String, Object> entry : globals.entrySet()) {
+                if (!natives.contains(entry.getKey()) || bindings.containsKey(entry.getKey()))
+                    bindings.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 执行脚本。Lox 的语句没有值，因此总是返回 null
+     */
+    private Object execute(CompiledScript script, LoxBindings globals, ScriptContext context) throws ScriptException {
+        globals.setWriter(context.getWriter());
+        LoxIsolate isolate = globals.isolate;
+        int status = isolate.run(script);
+        flush(context);
+        if (status == LoxIsolate.RUNTIME_ERROR)
+            throw scriptException(isolate.diagnostics.lastRuntimeError, context);
+        return null;
+    }
+
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        LoxBindings globals = engineGlobals();
+        Object function = globals.containsKey(name) ? globals.get(name) : null;
+        if (!(function instanceof LoxCallable))
+            throw new NoSuchMethodException("No Lox function named '" + name + "'.");
+        return call((LoxCallable) function, name, globals, args);
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException, NoSuchMethodException {
+        if (!(thiz instanceof LoxInstance))
+            throw new IllegalArgumentException("Can only invoke methods on Lox instances.");
+        LoxFunction method = ((LoxInstance) thiz).findMethod(Symbol.intern(name));
+        if (method == null)
+            throw new NoSuchMethodException("Undefined method '" + name + "'.");
+        return call(method.bind((LoxInstance) thiz), name, engineGlobals(), args);
+    }
+
+    private Object call(LoxCallable function, String name, LoxBindings globals, Object[] args) throws ScriptException {
+        int count = args == null ? 0 : args.length;
+        if (count != function.arity())
+            throw new ScriptException("Expected " + function.arity() + " arguments but got " + count
+                    + " when calling '" + name + "'.");
+        List<Object> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arguments.add(LoxBindings.toLox(args[i]));
+        }
+
+        globals.setWriter(context.getWriter());
+        try {
+            return LoxBindings.toJava(globals.isolate.call(function, arguments));
+        } catch (RuntimeError error) {
+            throw scriptException(error, context);
+        } finally {
+            flush(context);
+        }
+    }
+
+    @Override
+    public <T> T getInterface(Class<T> type) {
+        return implement(null, type);
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> type) {
+        if (!(thiz instanceof LoxInstance))
+            throw new IllegalArgumentException("Can only implement interfaces with Lox instances.");
+        return implement((LoxInstance) thiz, type);
+    }
+
+    /**
+     * 用 Lox 全局函数（thiz 为 null 时）或实例方法实现 Java 接口，缺少任何一个方法时返回 null
+     */
+    private <T> T implement(LoxInstance thiz, Class<T> type) {
+        if (type == null || !type.isInterface())
+            throw new IllegalArgumentException("Expected an interface type.");
+        LoxBindings globals = engineGlobals();
+        for (Method method : type.getMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers()))
+                continue;
+            Object target = thiz != null
+                    ? thiz.findMethod(Symbol.intern(method.getName()))
+                    : (globals.containsKey(method.getName()) ? globals.get(method.getName()) : null);
+            if (!(target instanceof LoxCallable))
+                return null;
+        }
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "Lox implementation of " + type.getName();
+                }
+            }
+            Object result = thiz != null
+                    ? invokeMethod(thiz, method.getName(), args)
+                    : invokeFunction(method.getName(), args);
+            return convertResult(result, method.getReturnType());
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * Lox 的数字都是 Double，按接口方法声明的返回类型转换
+     */
+    private static Object convertResult(Object result, Class<?> returnType) {
+        if (!(result instanceof Double))
+            return result;
+        double value = (Double) result;
+        if (returnType == int.class || returnType == Integer.class)
+            return (int) value;
+        if (returnType == long.class || returnType == Long.class)
+            return (long) value;
+        if (returnType == float.class || returnType == Float.class)
+            return (float) value;
+        return result;
+    }
+
+    private LoxBindings engineGlobals() {
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        if (!(bindings instanceof LoxBindings))
+            throw new IllegalStateException("Invocable requires ENGINE_SCOPE bindings created by this engine.");
+        return (LoxBindings) bindings;
+    }
+
+    private static ScriptException scriptException(RuntimeError error, ScriptContext context) {
+        // 原生函数在宿主直接调用时抛出的错误没有位置
+        int line = error.token == null ? -1 : error.token.line;
+        return new ScriptException(error.getMessage(), fileName(context), line);
+    }
+
+    private static String fileName(ScriptContext context) {
+        Object name = context.getAttribute(ScriptEngine.FILENAME);
+        return name != null ? name.toString() : null;
+    }
+
+    private static void flush(ScriptContext context) throws ScriptException {
+        try {
+            context.getWriter().flush();
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        StringBuilder source = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                source.append(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return source.toString();
+    }
+
+    /**
+     * Compilable.compile 的结果，可以在任意 ScriptContext 中反复执行
+     */
+    private final class Compiled extends javax.script.CompiledScript {
+        private final CompiledScript script;
+
+        Compiled(CompiledScript script) {
+            this.script = script;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            return execute(script, context);
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return LoxScriptEngine.this;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.craftinginterpreters.lox;
+
+import java.io.StringWriter;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+/**
+ * javax.script 引擎测试类
+ * 测试 eval、compile、invokeFunction / invokeMethod / getInterface 的往返调用
+ *
+ * 运行时 classpath 需要包含 resources 目录（META-INF/services 注册）
+ */
+public class LoxScriptEngineTest {
+
+    public interface Greeter {
+        String greet(String name);
+
+        double add(double a, double b);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== LoxScriptEngine 往返调用测试 ===\n");
+
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("lox");
+        StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+
+        // 测试 eval 和 Bindings
+        testEval(engine, output);
+
+        // 测试编译一次、执行多次
+        testCompile(engine, output);
+
+        // 测试从 Java 调用 Lox 函数和方法
+        testInvoke(engine);
+
+        // 测试调用中 spawn 的任务在返回前被等待
+        testInvokeTasks(engine);
+
+        System.out.println("\n=== 所有测试完成 ===");
+    }
+
+    /**
+     * 测试 eval 定义全局变量、函数和类，以及 Bindings 的读写
+     */
+    private static void testEval(ScriptEngine engine, StringWriter output) throws ScriptException {
+        System.out.println("1. 测试 eval:");
+
+        engine.put("x", 41);
+        engine.eval("print x + 1;"
+                + "fun add(a, b) { return a + b; }"
+                + "fun greet(n) { return \"hi \" + n; }"
+                + "class Point { init(v) { this.v = v; } twice() { return this.v * 2; } }"
+                + "var p = Point(21);"
+                + "var label = \"n=\" + x;");
+        report("print x + 1", output.toString().trim());
+        report("全局变量 label", engine.get("label"));
+
+        try {
+            engine.eval("print 1 - \"a\";");
+            report("运行时错误", "没有抛出 ScriptException");
+        } catch (ScriptException e) {
+            report("运行时错误", e.getMessage());
+        }
+        try {
+            engine.eval("var = 1;");
+            report("编译错误", "没有抛出 ScriptException");
+        } catch (ScriptException e) {
+            report("编译错误", e.getMessage());
+        }
+
+        System.out.println();
+    }
+
+    /**
+     * 测试 Compilable：同一个编译结果在 Bindings 变化后再次执行
+     */
+    private static void testCompile(ScriptEngine engine, StringWriter output) throws ScriptException {
+        System.out.println("2. 测试 compile:");
+
+        CompiledScript script = ((Compilable) engine).compile("print x * 2;");
+        output.getBuffer().setLength(0);
+        engine.put("x", 5);
+        script.eval();
+        engine.put("x", 6);
+        script.eval();
+        report("x = 5、x = 6 时的输出", output.toString().trim().replace(System.lineSeparator(), ", "));
+
+        engine.getBindings(ScriptContext.ENGINE_SCOPE).remove("x");
+        report("删除 x 后 containsKey", engine.getBindings(ScriptContext.ENGINE_SCOPE).containsKey("x"));
+
+        System.out.println();
+    }
+
+    /**
+     * 测试 invokeFunction、invokeMethod 和 getInterface
+     */
+    private static void testInvoke(ScriptEngine engine) throws Exception {
+        System.out.println("3. 测试 invokeFunction / invokeMethod / getInterface:");
+
+        Invocable invocable = (Invocable) engine;
+        report("add(2, 3)", invocable.invokeFunction("add", 2, 3));
+        report("p.twice()", invocable.invokeMethod(engine.get("p"), "twice"));
+
+        Greeter greeter = invocable.getInterface(Greeter.class);
+        report("Greeter.greet(\"lox\")", greeter.greet("lox"));
+        report("Greeter.add(1.5, 2)", greeter.add(1.5, 2));
+
+        try {
+            invocable.invokeFunction("missing");
+            report("不存在的函数", "没有抛出 NoSuchMethodException");
+        } catch (NoSuchMethodException e) {
+            report("不存在的函数", e.getMessage());
+        }
+        try {
+            invocable.invokeMethod(engine.get("p"), "twice", 1);
+            report("参数个数不对", "没有抛出 ScriptException");
+        } catch (ScriptException e) {
+            report("参数个数不对", e.getMessage());
+        }
+
+        System.out.println();
+    }
+
+    /**
+     * 测试 invokeFunction 返回前等待调用中 spawn 的任务，任务的错误在这次调用中报告
+     */
+    private static void testInvokeTasks(ScriptEngine engine) throws Exception {
+        System.out.println("4. 测试调用中 spawn 的任务:");
+
+        engine.eval("fun square(n) { return n * n; }"
+                + "fun sumSquares(n) {"
+                + "  var tasks = array();"
+                + "  for (var i = 1; i <= n; i = i + 1) { var k = i; fun work() { return square(k); } push(tasks, spawn(work)); }"
+                + "  var total = 0;"
+                + "  for (var i = 0; i < len(tasks); i = i + 1) total = total + join(tasks[i]);"
+                + "  return total;"
+                + "}"
+                + "fun fail() { return 1 - \"a\"; }"
+                + "fun startFailing() { spawn(fail); return \"started\"; }");
+
+        Invocable invocable = (Invocable) engine;
+        report("sumSquares(4)", invocable.invokeFunction("sumSquares", 4));
+        try {
+            invocable.invokeFunction("fail");
+            report("函数中的运行时错误", "没有抛出 ScriptException");
+        } catch (ScriptException e) {
+            report("函数中的运行时错误", e.getMessage());
+        }
+        try {
+            Object result = invocable.invokeFunction("startFailing");
+            report("任务出错的调用", "返回了 " + result);
+        } catch (ScriptException e) {
+            report("任务出错的调用", e.getMessage());
+        }
+        // 任务的错误已经在上一次调用中报告，不会留给之后的 eval
+        engine.eval("var after = 1;");
+        report("之后的 eval", engine.get("after"));
+
+        System.out.println();
+    }
+
+    private static void report(String description, Object value) {
+        System.out.printf("  %s: %s\n", description, value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * 原生的 StringBuilder：var sb = StringBuilder(); sb.append(x).append(y); sb.toString()
+ *
+ * 用 s = s + x 逐段拼接时，每一步都要 stringify 右操作数并产生新的字符串（或 LoxRope 节点），
+ * 之后展开时再整体拷贝一次。builder 直接追加到同一个 java.lang.StringBuilder 中，
+ * 数字经 NumberFormatter 直接写入，不生成临时字符串，总开销与结果长度成线性。
+ *
+ * 方法：append(value) 返回 builder 本身以便链式调用，length()、toString()、clear()。
+ * 内部缓冲区扩容时按扩容后的容量记入内存配额。
+ *
+ * 与数组一样不是线程安全的。
+ */
+final class LoxStringBuilder {
+    private final StringBuilder text = new StringBuilder();
+    // 绑定到这个 builder 的方法，每个 builder 只创建一次，循环里反复 sb.append(...) 不再产生新对象
+    private final NativeFunction append = new NativeFunction(1, false, this::append);
+    private final NativeFunction length = new NativeFunction(0, false, this::length);
+    private final NativeFunction build = new NativeFunction(0, false, this::build);
+    private final NativeFunction clear = new NativeFunction(0, false, this::clear);
+
+    static Object create(Interpreter interpreter, List<Object> arguments) {
+        interpreter.allocated(MemoryQuota.stringBytes(16));
+        return new LoxStringBuilder();
+    }
+
+    /**
+     * sb.name：取出绑定到这个 builder 的方法
+     */
+    Object get(Token name) {
+        switch (name.lexeme) {
+            case "append":
+                return append;
+            case "length":
+                return length;
+            case "toString":
+                return build;
+            case "clear":
+                return clear;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    private Object append(Interpreter interpreter, List<Object> arguments) {
+        Object value = LoxRope.flatten(arguments.get(0));
+        if (value instanceof Double) {
+            // 数字最长也不超过 32 个字符，按这个上限预留
+            reserve(interpreter, 32);
+            NumberFormatter.appendTo(text, (double) value);
+        } else {
+            String string = value instanceof String ? (String) value : Interpreter.stringify(value);
+            reserve(interpreter, string.length());
+            text.append(string);
+        }
+        return this;
+    }
+
+    /**
+     * 追加之前确认容量；需要扩容时先按扩容后的大小记账，超出配额就不再扩容
+     */
+    private void reserve(Interpreter interpreter, int extra) {
+        long needed = (long) text.length() + extra;
+        if (needed <= text.capacity())
+            return;
+        // 与 StringBuilder 的扩容规则一致：至少翻倍
+        long grown = Math.max(needed, 2L * text.capacity() + 2);
+        if (grown > Integer.MAX_VALUE - 8)
+            throw new RuntimeError(null, "String is too long.");
+        interpreter.allocated(MemoryQuota.stringBytes(grown));
+        text.ensureCapacity((int) grown);
+    }
+
+    private Object length(Interpreter interpreter, List<Object> arguments) {
+        return (double) text.length();
+    }
+
+    private Object build(Interpreter interpreter, List<Object> arguments) {
+        interpreter.allocated(MemoryQuota.stringBytes(text.length()));
+        return text.toString();
+    }
+
+    private Object clear(Interpreter interpreter, List<Object> arguments) {
+        text.setLength(0);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
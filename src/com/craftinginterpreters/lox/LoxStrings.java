@@ -0,0 +1,100 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字符串原生函数：substring、indexOf、split、joinStrings
+ *
+ * 直接调用 String 的 substring / indexOf 等方法，不经过正则表达式，
+ * 也不像在 Lox 里逐字符处理那样为每一步产生中间字符串。
+ * 参数中的 LoxRope 先展开为 String；结果字符串记入内存配额。
+ * 下标按 UTF-16 代码单元计算，与 String 一致。
+ */
+final class LoxStrings {
+    private LoxStrings() {
+    }
+
+    /**
+     * substring(s, from, to)：下标 [from, to) 的子串
+     */
+    static Object substring(Interpreter interpreter, List<Object> arguments) {
+        String string = string(arguments.get(0), "substring");
+        int from = position(arguments.get(1), "substring");
+        int to = position(arguments.get(2), "substring");
+        if (from > to || to > string.length())
+            throw new RuntimeError(null, "Substring range [" + from + ", " + to
+                    + ") is out of bounds for length " + string.length() + ".");
+        interpreter.allocated(MemoryQuota.stringBytes(to - from));
+        return string.substring(from, to);
+    }
+
+    /**
+     * indexOf(s, part)：part 第一次出现的下标，没有出现时返回 -1
+     */
+    static Object indexOf(Interpreter interpreter, List<Object> arguments) {
+        String string = string(arguments.get(0), "indexOf");
+        String part = string(arguments.get(1), "indexOf");
+        return (double) string.indexOf(part);
+    }
+
+    /**
+     * split(s, separator)：按分隔符切分成字符串数组；分隔符为空串时切成单个字符
+     */
+    static Object split(Interpreter interpreter, List<Object> arguments) {
+        String string = string(arguments.get(0), "split");
+        String separator = string(arguments.get(1), "split");
+        List<Object> parts = new ArrayList<>();
+        if (separator.isEmpty()) {
+            for (int i = 0; i < string.length(); i++) {
+                parts.add(string.substring(i, i + 1));
+            }
+        } else {
+            int start = 0;
+            for (int end; (end = string.indexOf(separator, start)) >= 0; start = end + separator.length()) {
+                parts.add(string.substring(start, end));
+            }
+            parts.add(string.substring(start));
+        }
+        interpreter.allocated(parts.size() * MemoryQuota.stringBytes(0) + 2L * string.length());
+        return LoxArray.of(interpreter, parts.toArray());
+    }
+
+    /**
+     * joinStrings(a, separator)：把数组元素 stringify 后用分隔符连接
+     *
+     * 不叫 join，因为 join 已经是等待 spawn 任务的原生函数。
+     */
+    static Object joinStrings(Interpreter interpreter, List<Object> arguments) {
+        Object[] elements = LoxArray.array(arguments.get(0), "joinStrings").toArray();
+        String separator = string(arguments.get(1), "joinStrings");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0)
+                text.append(separator);
+            Object element = LoxRope.flatten(elements[i]);
+            if (element instanceof Double) {
+                NumberFormatter.appendTo(text, (double) element);
+            } else {
+                text.append(Interpreter.stringify(element));
+            }
+        }
+        interpreter.allocated(MemoryQuota.stringBytes(text.length()));
+        return text.toString();
+    }
+
+    private static String string(Object value, String function) {
+        if (LoxRope.isString(value))
+            return value.toString();
+        throw new RuntimeError(null, "Arguments to " + function + "() must be strings.");
+    }
+
+    private static int position(Object value, String function) {
+        if (value instanceof Double) {
+            double number = (double) value;
+            if (number >= 0 && number <= Integer.MAX_VALUE && number == Math.floor(number))
+                return (int) number;
+        }
+        throw new RuntimeError(null, "Positions passed to " + function + "() must be non-negative integers.");
+    }
+}
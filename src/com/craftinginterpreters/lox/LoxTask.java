@@ -0,0 +1,98 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * spawn(fn) 启动的任务
+ *
+ * 每个任务运行在一个虚拟线程上，使用自己的 Interpreter（当前环境、fuel 等
+ * 执行状态各自独立），与启动它的解释器共享全局环境、输出、预算和内存配额。
+ * AST 和编译结果是不可变的，可以直接共享。
+ *
+ * 全局变量表允许并发读写（见 SymbolMap 的共享模式），主线程在任务运行时定义新的
+ * 全局变量不会让任务读到不完整的表；但多个线程读改写同一个全局变量仍然会丢失更新，
+ * 任务之间交换数据请使用 channel。
+ *
+ * 未被 join 的任务在脚本结束时由 Interpreter.awaitTasks 等待，
+ * 其中的运行时错误也在那里报告。
+ */
+final class LoxTask {
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+    // join 已经把错误交给了调用者，脚本结束时不再重复报告
+    private volatile boolean observed = false;
+
+    static Object spawn(Interpreter interpreter, List<Object> arguments) {
+        Object callee = arguments.get(0);
+        if (!(callee instanceof LoxCallable) || ((LoxCallable) callee).arity() != 0)
+            throw new RuntimeError(null, "Argument to spawn() must be a function with no parameters.");
+
+        LoxCallable function = (LoxCallable) callee;
+        LoxTask task = new LoxTask();
+        interpreter.track(task);
+        Interpreter child = interpreter.fork();
+        Thread.ofVirtual().name("lox-task").start(() -> task.run(child, function));
+        return task;
+    }
+
+    private void run(Interpreter interpreter, LoxCallable function) {
+        try {
+            result.complete(function.call(interpreter, List.of()));
+        } catch (Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 等待任务结束并返回函数的返回值，任务中的运行时错误在这里重新抛出
+     */
+    static Object join(Interpreter interpreter, List<Object> arguments) {
+        if (!(arguments.get(0) instanceof LoxTask))
+            throw new RuntimeError(null, "Argument to join() must be a task.");
+
+        LoxTask task = (LoxTask) arguments.get(0);
+        long nanos = interpreter.remainingNanos();
+        try {
+            return nanos == Long.MAX_VALUE
+                    ? task.result.get()
+                    : task.result.get(nanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            task.observed = true;
+            if (e.getCause() instanceof RuntimeError)
+                throw (RuntimeError) e.getCause();
+            throw new RuntimeError(null, "Task failed: " + e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeError(null, "Execution time limit exceeded.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError(null, "Interrupted while joining a task.");
+        }
+    }
+
+    /**
+     * 等待任务结束（不限时），返回没有被 join 观察到的运行时错误
+     */
+    RuntimeError await() {
+        try {
+            result.join();
+            return null;
+        } catch (Throwable e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (observed)
+                return null;
+            if (cause instanceof RuntimeError)
+                return (RuntimeError) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException("Lox task failed", cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
@@ -0,0 +1,113 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * 数字数组的批量运算：vadd、vmul、dot、sum、min、max
+ *
+ * 在 Lox 中逐元素循环时，每一步都要经过求值、装箱和变量查找；这些原生函数
+ * 一次调用处理整个数组，直接在 LoxArray 的 double[] 存储上运行 NumericKernels。
+ * 数组必须只含数字；vadd / vmul 的第二个参数可以是数字（与每个元素运算），
+ * 也可以是等长的数组，结果是新数组，不修改参数。
+ *
+ * dot 和 sum 的结果取决于是否启用了 Vector API（见 NumericKernels）：SIMD 实现分通道累加，
+ * 加法顺序不同，同一个数组的结果可能在最低几位有差别；vadd、vmul、min、max 的结果不受影响。
+ */
+final class LoxVectors {
+    private LoxVectors() {
+    }
+
+    /**
+     * vadd(a, b)：逐元素相加
+     */
+    static Object add(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "vadd");
+        double[] a = numbers(array, "vadd");
+        LoxArray result = LoxArray.zeros(interpreter, array.size());
+        Object other = arguments.get(1);
+        if (other instanceof Double) {
+            NumericKernels.INSTANCE.add(a, (double) other, result.numbers(), array.size());
+        } else {
+            double[] b = sameLength(array, other, "vadd");
+            NumericKernels.INSTANCE.add(a, b, result.numbers(), array.size());
+        }
+        return result;
+    }
+
+    /**
+     * vmul(a, b)：逐元素相乘
+     */
+    static Object multiply(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "vmul");
+        double[] a = numbers(array, "vmul");
+        LoxArray result = LoxArray.zeros(interpreter, array.size());
+        Object other = arguments.get(1);
+        if (other instanceof Double) {
+            NumericKernels.INSTANCE.multiply(a, (double) other, result.numbers(), array.size());
+        } else {
+            double[] b = sameLength(array, other, "vmul");
+            NumericKernels.INSTANCE.multiply(a, b, result.numbers(), array.size());
+        }
+        return result;
+    }
+
+    /**
+     * dot(a, b)：两个等长数组的点积
+     *
+     * 启用 Vector API 时按通道分别累加，结果的最低几位可能与标量实现不同
+     */
+    static Object dot(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "dot");
+        double[] a = numbers(array, "dot");
+        double[] b = sameLength(array, arguments.get(1), "dot");
+        return NumericKernels.INSTANCE.dot(a, b, array.size());
+    }
+
+    /**
+     * sum(a)：所有元素之和，空数组为 0
+     *
+     * 与 dot 一样，结果的最低几位取决于是否启用了 Vector API
+     */
+    static Object sum(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = array(arguments.get(0), "sum");
+        return NumericKernels.INSTANCE.sum(numbers(array, "sum"), array.size());
+    }
+
+    static Object min(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = nonEmpty(arguments.get(0), "min");
+        return NumericKernels.INSTANCE.min(numbers(array, "min"), array.size());
+    }
+
+    static Object max(Interpreter interpreter, List<Object> arguments) {
+        LoxArray array = nonEmpty(arguments.get(0), "max");
+        return NumericKernels.INSTANCE.max(numbers(array, "max"), array.size());
+    }
+
+    private static LoxArray array(Object value, String function) {
+        if (value instanceof LoxArray)
+            return (LoxArray) value;
+        throw new RuntimeError(null, "Arguments to " + function + "() must be arrays of numbers.");
+    }
+
+    private static LoxArray nonEmpty(Object value, String function) {
+        LoxArray array = array(value, function);
+        if (array.size() == 0)
+            throw new RuntimeError(null, function + "() requires a non-empty array.");
+        return array;
+    }
+
+    private static double[] numbers(LoxArray array, String function) {
+        double[] numbers = array.numbers();
+        if (numbers == null)
+            throw new RuntimeError(null, "Arguments to " + function + "() must be arrays of numbers.");
+        return numbers;
+    }
+
+    private static double[] sameLength(LoxArray array, Object value, String function) {
+        LoxArray other = array(value, function);
+        if (other.size() != array.size())
+            throw new RuntimeError(null, "Arrays passed to " + function + "() must have the same length ("
+                    + array.size() + " and " + other.size() + ").");
+        return numbers(other, function);
+    }
+}
@@ -0,0 +1,82 @@
+package com.craftinginterpreters.lox;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存配额：限制一次运行中由 Lox 值创建产生的分配字节数
+ *
+ * JVM 堆由所有隔离实例共享，单个脚本构造巨大的字符串、实例或闭包链时，
+ * 最终的 OutOfMemoryError 会波及同一进程里的其他脚本。这里在解释器创建
+ * 环境、实例、字段、绑定方法、数组、映射和拼接字符串时按估算的对象大小记账，
+ * 超出配额后以普通的运行时错误终止本次运行。
+ *
+ * 记的是累计分配量而不是存活量：被回收的对象不会退还配额，
+ * 所以配额应按"一次运行最多允许分配多少"来设置。
+ * 各项大小按 64 位 JVM、开启压缩指针估算，只求数量级正确。
+ * spawn 出的任务与所在隔离实例共用同一份配额，所以用量是原子计数。
+ */
+final class MemoryQuota {
+    // Environment 对象和其中的 SymbolMap，加上首次定义变量时分配的 8 槽键值数组
+    static final long ENVIRONMENT_BYTES = 136;
+    // LoxInstance 对象和空的字段表
+    static final long INSTANCE_BYTES = 40;
+    // 每个新字段摊到键值数组上的大小（表的装载因子不超过 1/2）
+    static final long FIELD_BYTES = 24;
+    // 绑定 this 产生的 LoxFunction（其环境另按 ENVIRONMENT_BYTES 计）
+    static final long BOUND_METHOD_BYTES = 24;
+    // LoxArray 对象和存储数组的对象头；每个槽位按 8 字节计（double，或引用加上摊到的装箱对象）
+    static final long ARRAY_BYTES = 40;
+    static final long ARRAY_SLOT_BYTES = 8;
+    // LoxMap 对象和四个数组的对象头；每个条目是键、值两个引用和一个散列值，
+    // 索引表每个槽位一个 int（槽位数是条目容量的两到四倍）
+    static final long MAP_BYTES = 96;
+    static final long MAP_ENTRY_BYTES = 16;
+    static final long MAP_SLOT_BYTES = 4;
+    // 一个 LoxRope 节点
+    static final long ROPE_BYTES = 32;
+    // String 对象和字符数组的对象头
+    private static final long STRING_HEADER_BYTES = 40;
+
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * @param limit 一次运行允许分配的字节数
+     */
+    MemoryQuota(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 开始一次运行：清零已用量
+     */
+    void start() {
+        used.set(0);
+    }
+
+    /**
+     * 记入一次分配
+     *
+     * @return 累计用量是否已超出配额
+     */
+    boolean charge(long bytes) {
+        return used.addAndGet(bytes) > limit;
+    }
+
+    /**
+     * 剩余配额是否还放得下指定长度的扁平字符串
+     *
+     * LoxRope 只记节点大小，但它展开时会一次性分配整段字符；
+     * 反复执行 s = s + s 时节点很少而长度成倍增长，在拼接时就要拦下来。
+     */
+    boolean fits(long length) {
+        return stringBytes(length) <= limit - used.get();
+    }
+
+    /**
+     * 扁平字符串的估算大小，按每个字符两字节（UTF-16）计
+     */
+    static long stringBytes(long length) {
+        return STRING_HEADER_BYTES + 2L * length;
+    }
+}
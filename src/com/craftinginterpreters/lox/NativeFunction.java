@@ -0,0 +1,41 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * 用 Java 实现的内置函数
+ *
+ * 参数不合法时抛出 token 为 null 的 RuntimeError，
+ * 由 Interpreter.call 补上调用处的括号位置后再抛出。
+ * 会修改第一个参数的函数（如 push）标记为 mutatesFirstArgument，供 SharedStateCheck 使用。
+ */
+final class NativeFunction implements LoxCallable {
+    interface Body {
+        Object call(Interpreter interpreter, List<Object> arguments);
+    }
+
+    private final int arity;
+    private final Body body;
+    final boolean mutatesFirstArgument;
+
+    NativeFunction(int arity, boolean mutatesFirstArgument, Body body) {
+        this.arity = arity;
+        this.mutatesFirstArgument = mutatesFirstArgument;
+        this.body = body;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return body.call(interpreter, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn>";
+    }
+}
@@ -0,0 +1,402 @@
+package com.craftinginterpreters.lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 插桩模式（--instrument）下的逐节点执行计数
+ *
+ * register 为程序中的每个 Stmt / Expr 分配连续的 nodeId，并记录节点所在的源码行。
+ * 解释器执行时按 nodeId 直接索引计数数组，不经过任何 Map：
+ * - 每个节点的执行次数
+ * - 每条语句的累计耗时（包含其中嵌套执行的所有代码；递归时只计最外层一次）
+ * - 每个 Expr.Binary 位置上出现过的左右操作数类型组合
+ *
+ * 结束时按行汇总出最热的源码行，并列出各二元运算位置的类型分布，
+ * 单一类型组合（单态）的位置最适合做类型特化。
+ */
+class NodeCounters {
+    private static final String[] TYPE_NAMES = {
+            "nil", "boolean", "number", "string", "instance", "class", "function", "other"
+    };
+    private static final int TYPE_COUNT = TYPE_NAMES.length;
+    private static final int REPORT_LIMIT = 20;
+
+    private int size = 0;
+    private Object[] nodes = new Object[256];
+    private int[] lines = new int[256];
+    private long[] counts = new long[256];
+    private long[] inclusiveNanos = new long[256];
+    private long[] startedAt = new long[256];
+    private int[] active = new int[256];
+    private long[][] binaryTypes = new long[256][];
+
+    /**
+     * 为程序中的所有节点编号（包括匿名函数体内的节点）
+     */
+    void register(List<Stmt> statements) {
+        Numberer numberer = new Numberer();
+        for (Stmt statement : statements) {
+            numberer.number(statement, 0);
+        }
+    }
+
+    void countExpr(Expr expr) {
+        int id = expr.nodeId;
+        if (id >= 0)
+            counts[id]++;
+    }
+
+    void enterStmt(Stmt stmt) {
+        int id = stmt.nodeId;
+        if (id < 0)
+            return;
+        counts[id]++;
+        if (active[id]++ == 0)
+            startedAt[id] = System.nanoTime();
+    }
+
+    void exitStmt(Stmt stmt) {
+        int id = stmt.nodeId;
+        if (id < 0)
+            return;
+        if (--active[id] == 0)
+            inclusiveNanos[id] += System.nanoTime() - startedAt[id];
+    }
+
+    void binaryOperands(Expr.Binary expr, Object left, Object right) {
+        int id = expr.nodeId;
+        if (id < 0)
+            return;
+        long[] pairs = binaryTypes[id];
+        if (pairs == null) {
+            pairs = new long[TYPE_COUNT * TYPE_COUNT];
+            binaryTypes[id] = pairs;
+        }
+        pairs[typeOf(left) * TYPE_COUNT + typeOf(right)]++;
+    }
+
+    private static int typeOf(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof Boolean)
+            return 1;
+        if (value instanceof Double)
+            return 2;
+        if (LoxRope.isString(value))
+            return 3;
+        if (value instanceof LoxInstance)
+            return 4;
+        if (value instanceof LoxClass)
+            return 5;
+        if (value instanceof LoxCallable)
+            return 6;
+        return 7;
+    }
+
+    /**
+     * 输出热点行、语句累计耗时和二元运算的操作数类型分布
+     */
+    void report(PrintStream out) {
+        int maxLine = 0;
+        for (int id = 0; id < size; id++) {
+            maxLine = Math.max(maxLine, lines[id]);
+        }
+
+        // 按行汇总：执行次数为该行所有节点之和，耗时取该行最外层语句的累计耗时
+        long[] lineCounts = new long[maxLine + 1];
+        long[] lineNanos = new long[maxLine + 1];
+        for (int id = 0; id < size; id++) {
+            lineCounts[lines[id]] += counts[id];
+            if (nodes[id] instanceof Stmt)
+                lineNanos[lines[id]] = Math.max(lineNanos[lines[id]], inclusiveNanos[id]);
+        }
+        Integer[] hotLines = new Integer[maxLine + 1];
+        for (int line = 0; line <= maxLine; line++) {
+            hotLines[line] = line;
+        }
+        Arrays.sort(hotLines, (a, b) -> Long.compare(lineCounts[b], lineCounts[a]));
+
+        out.println();
+        out.println("=== Hot lines ===");
+        out.printf("%8s %14s %12s%n", "line", "executions", "time ms");
+        for (int i = 0; i < Math.min(REPORT_LIMIT, hotLines.length); i++) {
+            int line = hotLines[i];
+            if (lineCounts[line] == 0)
+                break;
+            out.printf("%8d %14d %12.2f%n", line, lineCounts[line], lineNanos[line] / 1e6);
+        }
+
+        List<Integer> statements = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (nodes[id] instanceof Stmt && counts[id] > 0)
+                statements.add(id);
+        }
+        statements.sort((a, b) -> Long.compare(inclusiveNanos[b], inclusiveNanos[a]));
+
+        out.println();
+        out.println("=== Statements by cumulative time ===");
+        out.printf("%12s %14s %8s  %s%n", "time ms", "executions", "line", "statement");
+        for (int i = 0; i < Math.min(REPORT_LIMIT, statements.size()); i++) {
+            int id = statements.get(i);
+            out.printf("%12.2f %14d %8d  %s%n", inclusiveNanos[id] / 1e6, counts[id], lines[id],
+                    nodes[id].getClass().getSimpleName());
+        }
+
+        List<Integer> binarySites = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (binaryTypes[id] != null)
+                binarySites.add(id);
+        }
+        binarySites.sort((a, b) -> Long.compare(counts[b], counts[a]));
+
+        out.println();
+        out.println("=== Binary operand types ===");
+        for (int id : binarySites) {
+            Expr.Binary binary = (Expr.Binary) nodes[id];
+            StringBuilder pairs = new StringBuilder();
+            int seen = 0;
+            for (int pair = 0; pair < TYPE_COUNT * TYPE_COUNT; pair++) {
+                long count = binaryTypes[id][pair];
+                if (count == 0)
+                    continue;
+                if (seen++ > 0)
+                    pairs.append(", ");
+                pairs.append(TYPE_NAMES[pair / TYPE_COUNT]).append(' ')
+                        .append(binary.operator.lexeme).append(' ')
+                        .append(TYPE_NAMES[pair % TYPE_COUNT]).append(": ").append(count);
+            }
+            out.printf("line %d '%s' %s: %s%n", lines[id], binary.operator.lexeme,
+                    seen == 1 ? "monomorphic" : "polymorphic", pairs);
+        }
+    }
+
+    private int assign(Object node, int line) {
+        if (size == nodes.length)
+            grow();
+        int id = size++;
+        nodes[id] = node;
+        lines[id] = line;
+        return id;
+    }
+
+    private void grow() {
+        int capacity = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        inclusiveNanos = Arrays.copyOf(inclusiveNanos, capacity);
+        startedAt = Arrays.copyOf(startedAt, capacity);
+        active = Arrays.copyOf(active, capacity);
+        binaryTypes = Arrays.copyOf(binaryTypes, capacity);
+    }
+
+    /**
+     * 遍历 AST 分配 nodeId
+     *
+     * 先序分配编号；没有 Token 的节点（如 Literal、Print）沿用父节点或子节点的行号。
+     * 每个 visit 方法返回该节点的行号。
+     */
+    private class Numberer implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+        private int parentLine;
+
+        int number(Stmt stmt, int line) {
+            int id = assign(stmt, line);
+            stmt.nodeId = id;
+            int saved = parentLine;
+            parentLine = line;
+            int own = stmt.accept(this);
+            parentLine = saved;
+            lines[id] = own;
+            return own;
+        }
+
+        int number(Expr expr, int line) {
+            int id = assign(expr, line);
+            expr.nodeId = id;
+            int saved = parentLine;
+            parentLine = line;
+            int own = expr.accept(this);
+            parentLine = saved;
+            lines[id] = own;
+            return own;
+        }
+
+        private int numberAll(List<Stmt> statements, int line) {
+            int first = 0;
+            for (Stmt statement : statements) {
+                int own = number(statement, line);
+                if (first == 0)
+                    first = own;
+            }
+            return first != 0 ? first : line;
+        }
+
+        @Override
+        public Integer visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+            for (Expr element : expr.elements) {
+                number(element, expr.bracket.line);
+            }
+            return expr.bracket.line;
+        }
+
+        @Override
+        public Integer visitAssignExpr(Expr.Assign expr) {
+            number(expr.value, expr.name.line);
+            return expr.name.line;
+        }
+
+        @Override
+        public Integer visitBinaryExpr(Expr.Binary expr) {
+            number(expr.left, expr.operator.line);
+            number(expr.right, expr.operator.line);
+            return expr.operator.line;
+        }
+
+        @Override
+        public Integer visitCallExpr(Expr.Call expr) {
+            number(expr.callee, expr.paren.line);
+            for (Expr argument : expr.arguments) {
+                number(argument, expr.paren.line);
+            }
+            return expr.paren.line;
+        }
+
+        @Override
+        public Integer visitFunctionExpr(Expr.Function expr) {
+            int line = expr.params.isEmpty() ? parentLine : expr.params.get(0).line;
+            numberAll(expr.body, line);
+            return line;
+        }
+
+        @Override
+        public Integer visitGetExpr(Expr.Get expr) {
+            number(expr.object, expr.name.line);
+            return expr.name.line;
+        }
+
+        @Override
+        public Integer visitGroupingExpr(Expr.Grouping expr) {
+            return number(expr.expression, parentLine);
+        }
+
+        @Override
+        public Integer visitIndexExpr(Expr.Index expr) {
+            number(expr.object, expr.bracket.line);
+            number(expr.index, expr.bracket.line);
+            return expr.bracket.line;
+        }
+
+        @Override
+        public Integer visitIndexSetExpr(Expr.IndexSet expr) {
+            number(expr.object, expr.bracket.line);
+            number(expr.index, expr.bracket.line);
+            number(expr.value, expr.bracket.line);
+            return expr.bracket.line;
+        }
+
+        @Override
+        public Integer visitLiteralExpr(Expr.Literal expr) {
+            return parentLine;
+        }
+
+        @Override
+        public Integer visitLogicalExpr(Expr.Logical expr) {
+            number(expr.left, expr.operator.line);
+            number(expr.right, expr.operator.line);
+            return expr.operator.line;
+        }
+
+        @Override
+        public Integer visitSetExpr(Expr.Set expr) {
+            number(expr.object, expr.name.line);
+            number(expr.value, expr.name.line);
+            return expr.name.line;
+        }
+
+        @Override
+        public Integer visitSuperExpr(Expr.Super expr) {
+            return expr.keyword.line;
+        }
+
+        @Override
+        public Integer visitThisExpr(Expr.This expr) {
+            return expr.keyword.line;
+        }
+
+        @Override
+        public Integer visitUnaryExpr(Expr.Unary expr) {
+            number(expr.right, expr.operator.line);
+            return expr.operator.line;
+        }
+
+        @Override
+        public Integer visitVariableExpr(Expr.Variable expr) {
+            return expr.name.line;
+        }
+
+        @Override
+        public Integer visitBlockStmt(Stmt.Block stmt) {
+            return numberAll(stmt.statements, parentLine);
+        }
+
+        @Override
+        public Integer visitClassStmt(Stmt.Class stmt) {
+            for (Expr.Variable superclass : stmt.superclasses) {
+                number(superclass, stmt.name.line);
+            }
+            for (Stmt.Function method : stmt.methods) {
+                number(method, stmt.name.line);
+            }
+            return stmt.name.line;
+        }
+
+        @Override
+        public Integer visitExpressionStmt(Stmt.Expression stmt) {
+            return number(stmt.expression, parentLine);
+        }
+
+        @Override
+        public Integer visitFunctionStmt(Stmt.Function stmt) {
+            numberAll(stmt.body, stmt.name.line);
+            return stmt.name.line;
+        }
+
+        @Override
+        public Integer visitIfStmt(Stmt.If stmt) {
+            int line = number(stmt.condition, parentLine);
+            number(stmt.thenBranch, line);
+            if (stmt.elseBranch != null)
+                number(stmt.elseBranch, line);
+            return line;
+        }
+
+        @Override
+        public Integer visitPrintStmt(Stmt.Print stmt) {
+            return number(stmt.expression, parentLine);
+        }
+
+        @Override
+        public Integer visitReturnStmt(Stmt.Return stmt) {
+            if (stmt.value != null)
+                number(stmt.value, stmt.keyword.line);
+            return stmt.keyword.line;
+        }
+
+        @Override
+        public Integer visitVarStmt(Stmt.Var stmt) {
+            if (stmt.initializer != null)
+                number(stmt.initializer, stmt.name.line);
+            return stmt.name.line;
+        }
+
+        @Override
+        public Integer visitWhileStmt(Stmt.While stmt) {
+            int line = number(stmt.condition, parentLine);
+            number(stmt.body, line);
+            return line;
+        }
+    }
+}
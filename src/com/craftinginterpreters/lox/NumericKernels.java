@@ -0,0 +1,51 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * 数值数组的计算内核，供 vadd、vmul、dot、sum、min、max 原生函数使用
+ *
+ * 有两种实现：SimdKernels 用 jdk.incubator.vector 按 CPU 的向量宽度成批计算；
+ * ScalarKernels 是普通循环（逐元素的加法、乘法仍会被 C2 自动向量化，归约则按顺序累加）。
+ * 项目的语言级别是 JDK 21，Vector API 还在孵化模块里：SimdKernels 在单独的 simd 目录，
+ * 只有用 -Psimd 构建、并且启动时加上 --add-modules jdk.incubator.vector 才会使用；
+ * 否则（类不存在或模块未加载）自动退回 ScalarKernels。
+ *
+ * 所有方法只处理下标 [0, n) 的元素，数组可以比 n 长（LoxArray 的存储有预留容量）。
+ */
+interface NumericKernels {
+    NumericKernels INSTANCE = select();
+
+    void add(double[] a, double[] b, double[] out, int n);
+
+    void add(double[] a, double b, double[] out, int n);
+
+    void multiply(double[] a, double[] b, double[] out, int n);
+
+    void multiply(double[] a, double b, double[] out, int n);
+
+    double dot(double[] a, double[] b, int n);
+
+    double sum(double[] a, int n);
+
+    /**
+     * @param n 至少为 1
+     */
+    double min(double[] a, int n);
+
+    /**
+     * @param n 至少为 1
+     */
+    double max(double[] a, int n);
+
+    private static NumericKernels select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            // 通过反射加载，模块不存在时不会去链接引用了 Vector API 的类
+            try {
+                return (NumericKernels) Class.forName(NumericKernels.class.getPackageName() + ".SimdKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // 退回标量实现
+            }
+        }
+        return new ScalarKernels();
+    }
+}
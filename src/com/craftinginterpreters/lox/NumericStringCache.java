@@ -0,0 +1,161 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * 字符串到数字的转换缓存（用于 TypeComparator 的异类型比较）
+ *
+ * 对数字形式的字符串做排序、过滤时，同一个字符串会被反复转换。原先每次都要
+ * trim() 再 Double.parseDouble()，转换失败还要创建并捕获 NumberFormatException。
+ *
+ * 这里做了两件事：
+ * 1. 先按 Double.parseDouble 接受的语法校验字符串，校验不通过直接判定为"不是数字"，不会抛异常
+ * 2. 用固定大小的直接映射表缓存结果（包括"不是数字"），命中时不分配任何对象
+ *
+ * 表项是不可变对象，多线程下最坏情况只是互相覆盖、重新计算。
+ */
+final class NumericStringCache {
+    private static final int SIZE = 1024; // 必须是 2 的幂
+    private static final Entry[] entries = new Entry[SIZE];
+
+    /**
+     * 缓存表项，isNumber 为 false 时表示该字符串不能转换为数字
+     */
+    static final class Entry {
+        final String key;
+        final boolean isNumber;
+        final double value;
+
+        private Entry(String key, boolean isNumber, double value) {
+            this.key = key;
+            this.isNumber = isNumber;
+            this.value = value;
+        }
+    }
+
+    private NumericStringCache() {
+    }
+
+    /**
+     * 查询字符串的数字转换结果
+     *
+     * 转换规则与 Double.parseDouble(str.trim()) 相同，空白字符串视为不能转换。
+     *
+     * @param str 要转换的字符串
+     * @return 转换结果，不会为 null
+     */
+    static Entry lookup(String str) {
+        int index = (str.hashCode() ^ (str.hashCode() >>> 16)) & (SIZE - 1);
+        Entry entry = entries[index];
+        if (entry != null && (entry.key == str || entry.key.equals(str))) {
+            return entry;
+        }
+
+        entry = parse(str);
+        entries[index] = entry;
+        return entry;
+    }
+
+    private static Entry parse(String str) {
+        String trimmed = str.trim();
+        if (!isParsable(trimmed)) {
+            return new Entry(str, false, 0);
+        }
+        return new Entry(str, true, Double.parseDouble(trimmed));
+    }
+
+    /**
+     * 判断字符串是否符合 Double.parseDouble 的语法（已 trim）
+     *
+     * 支持：可选正负号，NaN、Infinity，十进制数（可带指数），
+     * 十六进制浮点数（0x1.8p1），以及结尾的 f/F/d/D 类型后缀。
+     */
+    private static boolean isParsable(String s) {
+        int length = s.length();
+        int i = 0;
+        if (i < length && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+            i++;
+        if (i == length)
+            return false;
+
+        if (s.startsWith("NaN", i))
+            return i + 3 == length;
+        if (s.startsWith("Infinity", i))
+            return i + 8 == length;
+
+        if (i + 1 < length && s.charAt(i) == '0'
+                && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X')) {
+            return isParsableHex(s, i + 2);
+        }
+
+        int digits = 0;
+        while (i < length && isDigit(s.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && s.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(s.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0)
+            return false;
+
+        if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i = skipExponent(s, i + 1);
+            if (i < 0)
+                return false;
+        }
+        return isEndOrSuffix(s, i);
+    }
+
+    private static boolean isParsableHex(String s, int i) {
+        int length = s.length();
+        int digits = 0;
+        while (i < length && Character.digit(s.charAt(i), 16) >= 0) {
+            i++;
+            digits++;
+        }
+        if (i < length && s.charAt(i) == '.') {
+            i++;
+            while (i < length && Character.digit(s.charAt(i), 16) >= 0) {
+                i++;
+                digits++;
+            }
+        }
+        // 十六进制浮点数的二进制指数 p 不可省略
+        if (digits == 0 || i == length || (s.charAt(i) != 'p' && s.charAt(i) != 'P'))
+            return false;
+
+        i = skipExponent(s, i + 1);
+        return i >= 0 && isEndOrSuffix(s, i);
+    }
+
+    /**
+     * 跳过指数部分的符号和数字
+     *
+     * @return 指数之后的位置，指数没有数字时返回 -1
+     */
+    private static int skipExponent(String s, int i) {
+        int length = s.length();
+        if (i < length && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+            i++;
+        int start = i;
+        while (i < length && isDigit(s.charAt(i)))
+            i++;
+        return i == start ? -1 : i;
+    }
+
+    private static boolean isEndOrSuffix(String s, int i) {
+        if (i == s.length())
+            return true;
+        if (i + 1 != s.length())
+            return false;
+        char c = s.charAt(i);
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -10,13 +10,15 @@ import static com.craftinginterpreters.lox.TokenType.*;
 
 class Parser {
     private final List<Token> tokens;
+    private final Diagnostics diagnostics;
     private int current = 0;
 
     private static class ParseError extends RuntimeException {
     }
 
-    Parser(List<Token> tokens) {
+    Parser(List<Token> tokens, Diagnostics diagnostics) {
         this.tokens = tokens;
+        this.diagnostics = diagnostics;
     }
 
     private Stmt expressionStatement() {
@@ -57,15 +59,17 @@ class Parser {
     }
 
     private Stmt whileStatement() {
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after condition.");
         Stmt body = statement();
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(keyword, condition, body);
     }
 
     private Stmt forStatement() {
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'for'.");
         Stmt initializer;
         if (match(SEMICOLON)) {
@@ -94,7 +98,7 @@ class Parser {
         }
         if (condition == null)
             condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(keyword, condition, body);
         if (initializer != null) {
             body = new Stmt.Block(Arrays.asList(initializer, body));
         }
@@ -113,22 +117,26 @@ class Parser {
     }
 
     private Stmt statement() {
-
-        if (match(FOR))
-            return forStatement();
-        if (match(IF))
-            return ifStatement();
-        if (match(PRINT))
-            return printStatement();
-        if (match(RETURN))
-            return returnStatement();
-        if (match(WHILE))
-            return whileStatement();
-
-        if (match(LEFT_BRACE))
-            return new Stmt.Block(block());
-
-        return expressionStatement();
+        // 记下语句第一个 token 的行号（print、块和表达式语句的节点里没有保存 token）
+        int line = peek().line;
+        Stmt stmt;
+        if (match(FOR)) {
+            stmt = forStatement();
+        } else if (match(IF)) {
+            stmt = ifStatement();
+        } else if (match(PRINT)) {
+            stmt = printStatement();
+        } else if (match(RETURN)) {
+            stmt = returnStatement();
+        } else if (match(WHILE)) {
+            stmt = whileStatement();
+        } else if (match(LEFT_BRACE)) {
+            stmt = new Stmt.Block(block());
+        } else {
+            stmt = expressionStatement();
+        }
+        stmt.line = line;
+        return stmt;
     }
 
     private Stmt varDeclaration() {
@@ -189,17 +197,21 @@ class Parser {
     }
 
     private Stmt declaration() {
+        int line = peek().line;
         try {
-            if (match(CLASS))
-                return classDeclaration();
-            if (check(FUN)) {
+            Stmt stmt;
+            if (match(CLASS)) {
+                stmt = classDeclaration();
+            } else if (check(FUN)) {
                 advance(); // 消费 fun
-                return function("function");
+                stmt = function("function");
+            } else if (match(VAR)) {
+                stmt = varDeclaration();
+            } else {
+                return statement();
             }
-            if (match(VAR))
-                return varDeclaration();
-
-            return statement();
+            stmt.line = line;
+            return stmt;
         } catch (ParseError error) {
             synchronize();
             return null;
@@ -352,6 +364,10 @@ class Parser {
                 Expr.Get get = (Expr.Get) expr;
                 return new Expr.Set(get.object, get.name, value);
                 // 新增部分结束
+            } else if (expr instanceof Expr.Index) {
+                // a[i] = value
+                Expr.Index index = (Expr.Index) expr;
+                return new Expr.IndexSet(index.object, index.bracket, index.index, value);
             }
 
             error(equals, "Invalid assignment target.");
@@ -416,7 +432,7 @@ class Parser {
     }
 
     private ParseError error(Token token, String message) {
-        Lox.error(token, message);
+        diagnostics.error(token, message);
         return new ParseError();
     }
 
@@ -464,6 +480,18 @@ class Parser {
             consume(RIGHT_PAREN, "Expect ')' after expression.");
             return new Expr.Grouping(expr);
         }
+        // 数组字面量: [a, b, c]
+        if (match(LEFT_BRACKET)) {
+            Token bracket = previous();
+            List<Expr> elements = new ArrayList<>();
+            if (!check(RIGHT_BRACKET)) {
+                do {
+                    elements.add(expression());
+                } while (match(COMMA));
+            }
+            consume(RIGHT_BRACKET, "Expect ']' after array elements.");
+            return new Expr.ArrayLiteral(bracket, elements);
+        }
         throw error(peek(), "Expect expression.");
     }
 
@@ -518,6 +546,11 @@ class Parser {
                         "Expect property name after '.'.");
                 expr = new Expr.Get(expr, name);
 
+            } else if (match(LEFT_BRACKET)) {
+                // 下标访问: a[i]
+                Expr index = expression();
+                Token bracket = consume(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
             } else {
                 break;
             }
@@ -10,7 +10,9 @@ import java.util.Stack;
  * 2. 没有控制流，循环只会被处理一次，if 语句中的两个分支都会处理，逻辑操作符也不会做短路处理。
  */
 class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-    private final Interpreter interpreter;
+    private final Diagnostics diagnostics;
+    // 解析出的局部变量引用数
+    int resolvedLocals = 0;
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
 
     private enum FunctionType {
@@ -30,8 +32,16 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     private ClassType currentClass = ClassType.NONE;
     private FunctionType currentFunction = FunctionType.NONE;
 
-    Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
+    Resolver(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public Void visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        for (Expr element : expr.elements) {
+            resolve(element);
+        }
+        return null;
     }
 
     @Override
@@ -76,6 +86,21 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        resolve(expr.value);
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
     @Override
     public Void visitLiteralExpr(Expr.Literal expr) {
         return null;
@@ -98,10 +123,10 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitSuperExpr(Expr.Super expr) {
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword,
+            diagnostics.error(expr.keyword,
                     "Can't use 'super' outside of a class.");
         } else if (currentClass != ClassType.SUBCLASS) {
-            Lox.error(expr.keyword,
+            diagnostics.error(expr.keyword,
                     "Can't use 'super' in a class with no superclass.");
         }
         resolveLocal(expr, expr.keyword);
@@ -112,7 +137,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitThisExpr(Expr.This expr) {
         resolveLocal(expr, expr.keyword);
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword,
+            diagnostics.error(expr.keyword,
                     "Can't use 'this' outside of a class.");
             return null;
         }
@@ -129,7 +154,9 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     private void resolveLocal(Expr expr, Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
             if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
+                // 距离直接记录在节点上，解析完成后 AST 不再被修改，可以在线程间共享
+                expr.depth = scopes.size() - 1 - i;
+                resolvedLocals++;
                 return;
             }
         }
@@ -140,7 +167,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         // 判断是否有定义使用自己的情况，比如 var a = a; 会直接报错
         if (!scopes.isEmpty() &&
                 scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            Lox.error(expr.name,
+            diagnostics.error(expr.name,
                     "Can't read local variable in its own initializer.");
         }
 
@@ -188,7 +215,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         // 检查所有父类：不能继承自己
         for (Expr.Variable superclass : stmt.superclasses) {
             if (stmt.name.lexeme.equals(superclass.name.lexeme)) {
-                Lox.error(superclass.name,
+                diagnostics.error(superclass.name,
                         "A class can't inherit from itself.");
             }
         }
@@ -275,11 +302,11 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
          * 判断 return 是否在函数内部
          */
         if (currentFunction == FunctionType.NONE) {
-            Lox.error(stmt.keyword, "Can't return from top-level code.");
+            diagnostics.error(stmt.keyword, "Can't return from top-level code.");
         }
         if (stmt.value != null) {
             if (currentFunction == FunctionType.INITIALIZER) {
-                Lox.error(stmt.keyword,
+                diagnostics.error(stmt.keyword,
                         "Can't return a value from an initializer.");
             }
             resolve(stmt.value);
@@ -294,7 +321,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         Map<String, Boolean> scope = scopes.peek();
         if (scope.containsKey(name.lexeme)) {
-            Lox.error(name,
+            diagnostics.error(name,
                     "Already variable with this name in this scope.");
         }
         scope.put(name.lexeme, false);
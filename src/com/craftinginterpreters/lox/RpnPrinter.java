@@ -55,6 +55,27 @@ class RpnPrinter implements Expr.Visitor<String> {
         return "<lambda>";
     }
 
+    @Override
+    public String visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        StringBuilder builder = new StringBuilder();
+        for (Expr element : expr.elements) {
+            builder.append(element.accept(this)).append(" ");
+        }
+        return builder.append(expr.elements.size()).append(" []").toString();
+    }
+
+    @Override
+    public String visitIndexExpr(Expr.Index expr) {
+        return expr.object.accept(this) + " " + expr.index.accept(this) + " []";
+    }
+
+    @Override
+    public String visitIndexSetExpr(Expr.IndexSet expr) {
+        return expr.object.accept(this) + " " +
+                expr.index.accept(this) + " " +
+                expr.value.accept(this) + " []=";
+    }
+
     @Override
     public String visitGetExpr(Expr.Get expr) {
         return expr.object.accept(this) + " " + expr.name.lexeme + " .";
@@ -0,0 +1,176 @@
+package com.craftinginterpreters.lox;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lox 脚本的采样分析器（--profile）
+ *
+ * 解释线程在 LoxFunction.call / LoxLambda.call 中维护一个轻量的影子调用栈，
+ * 栈中只存放函数声明节点（Stmt.Function 或 Expr.Function），不分配任何对象。
+ * 后台线程按固定间隔读取影子栈，累计每个调用栈出现的次数。
+ *
+ * 结束时输出：
+ * - 每个函数的 self 时间（位于栈顶）和 total 时间（出现在栈中）
+ * - 折叠格式的调用栈（每行 "a;b;c 次数"），可直接交给 flamegraph.pl 生成火焰图
+ *
+ * 未开启时 Interpreter.profiler 为 null，调用路径上只多一次判空。
+ */
+class SamplingProfiler {
+    private static final String TOP_LEVEL = "<script>";
+
+    private final long intervalNanos;
+
+    // 影子栈：只由解释线程写入；depth 是 volatile，保证采样线程能看到 depth 之前写入的栈帧
+    private volatile Object[] frames = new Object[256];
+    private volatile int depth = 0;
+
+    // 以下字段只由采样线程访问
+    private final Map<List<Object>, long[]> stacks = new HashMap<>();
+    private long samples = 0;
+
+    private volatile boolean running = false;
+    private Thread sampler;
+
+    SamplingProfiler(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * 进入 Lox 函数（由解释线程调用）
+     *
+     * @param declaration 函数声明节点，用作栈帧标识
+     */
+    void enter(Object declaration) {
+        Object[] current = frames;
+        int top = depth;
+        if (top == current.length) {
+            Object[] grown = new Object[current.length * 2];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            frames = grown;
+            current = grown;
+        }
+        current[top] = declaration;
+        depth = top + 1;
+    }
+
+    /**
+     * 离开 Lox 函数（由解释线程调用，包括以 Return 或 RuntimeError 退出的情况）
+     */
+    void exit() {
+        depth--;
+    }
+
+    void start() {
+        running = true;
+        sampler = new Thread(this::sampleLoop, "lox-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * 停止采样并等待采样线程结束
+     */
+    void stop() {
+        running = false;
+        if (sampler == null)
+            return;
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sampleLoop() {
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            sample();
+        }
+    }
+
+    private void sample() {
+        int top = depth;
+        Object[] snapshot = frames;
+        top = Math.min(top, snapshot.length);
+        // 栈帧可能在读取过程中被覆盖，采样结果允许有少量偏差
+        List<Object> stack = new ArrayList<>(top);
+        for (int i = 0; i < top; i++) {
+            stack.add(snapshot[i]);
+        }
+        stacks.computeIfAbsent(stack, key -> new long[1])[0]++;
+        samples++;
+    }
+
+    /**
+     * 输出分析报告
+     *
+     * @param summary   每个函数的 self/total 时间表的输出位置
+     * @param collapsed 折叠调用栈文件路径
+     */
+    void report(PrintStream summary, Path collapsed) throws IOException {
+        Map<Object, long[]> selfAndTotal = new HashMap<>();
+        for (Map.Entry<List<Object>, long[]> entry : stacks.entrySet()) {
+            List<Object> stack = entry.getKey();
+            long count = entry.getValue()[0];
+            Object leaf = stack.isEmpty() ? TOP_LEVEL : stack.get(stack.size() - 1);
+            selfAndTotal.computeIfAbsent(leaf, key -> new long[2])[0] += count;
+
+            // 递归调用中同一个函数在栈里出现多次，total 只计一次
+            Set<Object> seen = new HashSet<>(stack);
+            seen.add(TOP_LEVEL);
+            for (Object frame : seen) {
+                selfAndTotal.computeIfAbsent(frame, key -> new long[2])[1] += count;
+            }
+        }
+
+        double millisPerSample = intervalNanos / 1_000_000.0;
+        summary.printf("%n=== Lox profile: %d samples, %.1f ms interval ===%n", samples, millisPerSample);
+        summary.printf("%10s %10s  %s%n", "self ms", "total ms", "function");
+        List<Map.Entry<Object, long[]>> rows = new ArrayList<>(selfAndTotal.entrySet());
+        rows.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (Map.Entry<Object, long[]> row : rows) {
+            summary.printf("%10.1f %10.1f  %s%n",
+                    row.getValue()[0] * millisPerSample,
+                    row.getValue()[1] * millisPerSample,
+                    label(row.getKey()));
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(collapsed, StandardCharsets.UTF_8))) {
+            for (Map.Entry<List<Object>, long[]> entry : stacks.entrySet()) {
+                StringBuilder line = new StringBuilder(TOP_LEVEL);
+                for (Object frame : entry.getKey()) {
+                    line.append(';').append(label(frame));
+                }
+                out.println(line.append(' ').append(entry.getValue()[0]));
+            }
+        }
+        summary.println("Collapsed stacks written to " + collapsed);
+    }
+
+    /**
+     * 栈帧的可读名称：函数名加声明所在行
+     */
+    static String label(Object frame) {
+        if (frame instanceof Stmt.Function) {
+            Token name = ((Stmt.Function) frame).name;
+            return name.lexeme + " (line " + name.line + ")";
+        }
+        if (frame instanceof Expr.Function) {
+            List<Token> params = ((Expr.Function) frame).params;
+            return params.isEmpty() ? "<lambda>" : "<lambda> (line " + params.get(0).line + ")";
+        }
+        return String.valueOf(frame);
+    }
+}
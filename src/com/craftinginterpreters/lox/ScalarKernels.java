@@ -0,0 +1,77 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * NumericKernels 的标量实现，没有 Vector API 时使用
+ *
+ * 归约按下标顺序累加，结果与在 Lox 中写同样的循环完全相同。
+ */
+final class ScalarKernels implements NumericKernels {
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void add(double[] a, double b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] + b;
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b;
+        }
+    }
+
+    @Override
+    public double dot(double[] a, double[] b, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sum(double[] a, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double min(double[] a, int n) {
+        double min = a[0];
+        for (int i = 1; i < n; i++) {
+            min = Math.min(min, a[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public double max(double[] a, int n) {
+        double max = a[0];
+        for (int i = 1; i < n; i++) {
+            max = Math.max(max, a[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
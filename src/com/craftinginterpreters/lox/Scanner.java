@@ -39,9 +39,11 @@ class Scanner {
     private int current = 0;
     private int line = 1;
     // < scan-state
+    private final Diagnostics diagnostics;
 
-    Scanner(String source) {
+    Scanner(String source, Diagnostics diagnostics) {
         this.source = source;
+        this.diagnostics = diagnostics;
     }
 
     // > scan-tokens
@@ -73,6 +75,12 @@ class Scanner {
             case '}':
                 addToken(RIGHT_BRACE);
                 break;
+            case '[':
+                addToken(LEFT_BRACKET);
+                break;
+            case ']':
+                addToken(RIGHT_BRACKET);
+                break;
             case ',':
                 addToken(COMMA);
                 break;
@@ -149,7 +157,7 @@ class Scanner {
                     identifier();
                     // < identifier-start
                 } else {
-                    Lox.error(line, "Unexpected character.");
+                    diagnostics.error(line, "Unexpected character.");
                 }
                 // < digit-start
                 break;
@@ -205,7 +213,7 @@ class Scanner {
         }
 
         if (isAtEnd()) {
-            Lox.error(line, "Unterminated string.");
+            diagnostics.error(line, "Unterminated string.");
             return;
         }
 
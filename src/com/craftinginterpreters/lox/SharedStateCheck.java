@@ -0,0 +1,335 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 检查交给 parallelMap / parallelReduce 的函数是否会写共享的可变状态
+ *
+ * 共享变量指全局变量，以及从外层函数捕获的变量：后者所在的环境在函数创建时就已存在，
+ * 所有工作线程看到的是同一个环境。只有函数自己（含其中的块和嵌套函数）声明的变量
+ * 在每次调用时重新创建，可以随意修改。
+ *
+ * 在函数体（以及它通过全局名字直接调用的函数、构造的类的 init）中查找：
+ * - 给共享变量赋值，例如 count = count + 1
+ * - 给经由共享变量取到的对象设置字段或数组元素，例如 counter.value = 1、totals[i] = x
+ * - 把共享变量作为第一个参数传给会修改它的原生函数，例如 push(results, x)
+ * - 调用共享变量的 append / clear（可能是 StringBuilder），例如 out.append(x)
+ *
+ * 这是保守的静态检查：通过参数、局部变量或方法调用到的函数无法在这里确定，
+ * 不会继续深入；匿名函数体没有经过 Resolver，其中的变量都按全局处理，因此
+ * 在匿名函数体内给任何变量赋值都会被拒绝。
+ */
+final class SharedStateCheck implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private final Environment globals;
+    // 已经检查过的函数声明，避免递归函数无限展开
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 当前位置在被检查的函数内嵌套了几层作用域（函数体本身为 0）；
+    // Resolver 算出的 depth 超过它的变量声明在函数之外
+    private int scopeDepth;
+    private String violation;
+
+    private SharedStateCheck(Environment globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * @return 第一处违规的描述，没有违规时返回 null
+     */
+    static String check(LoxCallable function, Environment globals) {
+        SharedStateCheck check = new SharedStateCheck(globals);
+        check.callable(function);
+        return check.violation;
+    }
+
+    private void callable(Object value) {
+        if (value instanceof LoxFunction) {
+            Stmt.Function declaration = ((LoxFunction) value).declaration;
+            if (visited.add(declaration))
+                body(declaration.body);
+        } else if (value instanceof LoxLambda) {
+            Expr.Function declaration = ((LoxLambda) value).declaration;
+            if (visited.add(declaration))
+                body(declaration.body);
+        } else if (value instanceof LoxClass) {
+            callable(((LoxClass) value).findMethod(Symbol.INIT));
+        }
+    }
+
+    /**
+     * 检查一个独立调用的函数体，其中的作用域深度从 0 开始计
+     */
+    private void body(List<Stmt> body) {
+        int enclosing = scopeDepth;
+        scopeDepth = 0;
+        statements(body);
+        scopeDepth = enclosing;
+    }
+
+    /**
+     * 在多一层作用域中检查
+     */
+    private void nested(int scopes, List<Stmt> statements) {
+        scopeDepth += scopes;
+        statements(statements);
+        scopeDepth -= scopes;
+    }
+
+    private void statements(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (violation != null)
+                return;
+            statement.accept(this);
+        }
+    }
+
+    private void expression(Expr expr) {
+        if (violation == null)
+            expr.accept(this);
+    }
+
+    private void violate(Token at, String message) {
+        if (violation == null)
+            violation = message + " (line " + at.line + ").";
+    }
+
+    /**
+     * 变量是否声明在被检查的函数之外（全局或捕获的）
+     */
+    private boolean shared(Expr variable) {
+        return variable.depth < 0 || variable.depth > scopeDepth;
+    }
+
+    private String describe(Expr variable, Token name) {
+        return (variable.depth < 0 ? "global variable '" : "captured variable '") + name.lexeme + "'";
+    }
+
+    /**
+     * 表达式是否经由共享变量取到（x、x.a、x[i]、x.a[i].b ...）
+     *
+     * @return 共享变量的描述，不是时返回 null
+     */
+    private String sharedRoot(Expr expr) {
+        while (expr instanceof Expr.Get || expr instanceof Expr.Index) {
+            expr = expr instanceof Expr.Get ? ((Expr.Get) expr).object : ((Expr.Index) expr).object;
+        }
+        if (expr instanceof Expr.Variable && shared(expr))
+            return describe(expr, ((Expr.Variable) expr).name);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteralExpr(Expr.ArrayLiteral expr) {
+        for (Expr element : expr.elements) {
+            expression(element);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        if (shared(expr))
+            violate(expr.name, "assigns to " + describe(expr, expr.name));
+        expression(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        expression(expr.left);
+        expression(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        expression(expr.callee);
+        for (Expr argument : expr.arguments) {
+            expression(argument);
+        }
+
+        if (expr.callee instanceof Expr.Get) {
+            builderCall(expr, (Expr.Get) expr.callee);
+            return null;
+        }
+        if (!(expr.callee instanceof Expr.Variable) || expr.callee.depth >= 0)
+            return null;
+        Token name = ((Expr.Variable) expr.callee).name;
+        if (!globals.isDefined(name.symbol))
+            return null;
+        Object callee = globals.get(name);
+        if (callee instanceof NativeFunction && ((NativeFunction) callee).mutatesFirstArgument
+                && !expr.arguments.isEmpty()) {
+            String root = sharedRoot(expr.arguments.get(0));
+            if (root != null)
+                violate(expr.paren, "passes " + root + " to " + name.lexeme + "()");
+        }
+        callable(callee);
+        return null;
+    }
+
+    /**
+     * shared.append(x) / shared.clear()：共享的 StringBuilder 会被并发修改
+     *
+     * 全局变量可以直接看当前值；捕获的变量拿不到值，只要方法名吻合就拒绝。
+     */
+    private void builderCall(Expr.Call expr, Expr.Get method) {
+        if (!method.name.lexeme.equals("append") && !method.name.lexeme.equals("clear"))
+            return;
+        if (!(method.object instanceof Expr.Variable) || !shared(method.object))
+            return;
+        Token name = ((Expr.Variable) method.object).name;
+        if (method.object.depth >= 0
+                || globals.isDefined(name.symbol) && globals.get(name) instanceof LoxStringBuilder)
+            violate(expr.paren, "calls " + method.name.lexeme + "() on " + describe(method.object, name));
+    }
+
+    @Override
+    public Void visitFunctionExpr(Expr.Function expr) {
+        if (visited.add(expr))
+            nested(1, expr.body);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        expression(expr.object);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        expression(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        expression(expr.object);
+        expression(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        String root = sharedRoot(expr.object);
+        if (root != null)
+            violate(expr.bracket, "sets an element of " + root);
+        expression(expr.object);
+        expression(expr.index);
+        expression(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        expression(expr.left);
+        expression(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        String root = sharedRoot(expr.object);
+        if (root != null)
+            violate(expr.name, "sets field '" + expr.name.lexeme + "' on " + root);
+        expression(expr.object);
+        expression(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        expression(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        nested(1, stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        // 与 Resolver 一致：有父类时多一层 super 作用域，再加一层 this 作用域
+        int scopes = stmt.superclasses.isEmpty() ? 1 : 2;
+        scopeDepth += scopes;
+        for (Stmt.Function method : stmt.methods) {
+            visitFunctionStmt(method);
+        }
+        scopeDepth -= scopes;
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        expression(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        if (visited.add(stmt))
+            nested(1, stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        expression(stmt.condition);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null)
+            stmt.elseBranch.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        expression(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value != null)
+            expression(stmt.value);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.initializer != null)
+            expression(stmt.initializer);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        expression(stmt.condition);
+        stmt.body.accept(this);
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.craftinginterpreters.lox;
+
+import java.io.StringWriter;
+
+/**
+ * parallelMap / parallelReduce 纯度检查测试类
+ * 每段脚本在新的 LoxIsolate 中运行，打印输出或被拒绝时的错误信息
+ */
+public class SharedStateCheckTest {
+
+    public static void main(String[] args) {
+        System.out.println("=== SharedStateCheck 共享状态检查测试 ===\n");
+
+        // 测试应当接受的函数
+        testAccepted();
+
+        // 测试应当拒绝的函数
+        testRejected();
+
+        System.out.println("\n=== 所有测试完成 ===");
+    }
+
+    /**
+     * 只修改自己声明的变量的函数可以并行执行
+     */
+    private static void testAccepted() {
+        System.out.println("1. 测试接受的函数:");
+
+        run("局部变量赋值",
+                "fun f(n) { var x = n; x = x * 2; return x; }"
+                + "print parallelMap([1, 2, 3], f);");
+        run("局部数组 push、局部 builder append",
+                "fun f(n) { var a = array(); push(a, n); var sb = StringBuilder(); sb.append(n); return len(a); }"
+                + "print parallelMap([1, 2], f);");
+        run("嵌套函数修改被检查函数的局部变量",
+                "fun f(n) { var c = 0; fun inc() { c = c + 1; } inc(); inc(); return c + n; }"
+                + "print parallelMap([1, 2], f);");
+        run("读取全局变量",
+                "var k = 10; fun f(n) { return n * k; }"
+                + "print parallelMap([1, 2], f);");
+        run("parallelReduce 求和",
+                "fun add(a, b) { return a + b; }"
+                + "print parallelReduce([1, 2, 3, 4], add, 0);");
+
+        System.out.println();
+    }
+
+    /**
+     * 会写共享可变状态的函数在开始执行前被拒绝
+     */
+    private static void testRejected() {
+        System.out.println("2. 测试拒绝的函数:");
+
+        run("给全局变量赋值",
+                "var total = 0;\n"
+                + "fun f(n) { total = total + n; return n; }\n"
+                + "parallelMap([1, 2], f);");
+        run("给捕获的变量赋值",
+                "fun outer() {\n"
+                + "  var count = 0;\n"
+                + "  fun f(n) { count = count + 1; return n; }\n"
+                + "  return parallelMap([1, 2], f);\n"
+                + "}\n"
+                + "outer();");
+        run("设置共享对象的字段",
+                "class Box {}\n"
+                + "var box = Box();\n"
+                + "fun f(n) { box.value = n; return n; }\n"
+                + "parallelMap([1, 2], f);");
+        run("设置共享数组的元素",
+                "var results = [0, 0];\n"
+                + "fun f(n) { results[0] = n; return n; }\n"
+                + "parallelMap([1, 2], f);");
+        run("push(shared, x)",
+                "var results = array();\n"
+                + "fun f(n) { push(results, n); return n; }\n"
+                + "parallelMap([1, 2], f);");
+        run("shared.append(x)",
+                "var out = StringBuilder();\n"
+                + "fun f(n) { out.append(n); return n; }\n"
+                + "parallelMap([1, 2], f);");
+        run("捕获的 builder 调用 append",
+                "fun outer() {\n"
+                + "  var out = StringBuilder();\n"
+                + "  fun f(a, b) { out.append(b); return a + b; }\n"
+                + "  return parallelReduce([1, 2], f, 0);\n"
+                + "}\n"
+                + "outer();");
+        run("通过直接调用的全局函数间接赋值",
+                "var total = 0;\n"
+                + "fun bump() { total = total + 1; }\n"
+                + "fun f(n) { bump(); return n; }\n"
+                + "parallelMap([1, 2], f);");
+
+        System.out.println();
+    }
+
+    /**
+     * 运行一段脚本，打印 print 的输出或运行时错误
+     */
+    private static void run(String description, String source) {
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        int status = new LoxIsolate(out, err).run(source);
+        String result = status == LoxIsolate.OK ? out.toString() : err.toString();
+        System.out.printf("  %s (退出码 %d):\n", description, status);
+        for (String line : result.trim().split("\\R")) {
+            System.out.printf("    %s\n", line);
+        }
+    }
+}
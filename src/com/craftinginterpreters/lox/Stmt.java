@@ -176,7 +176,8 @@ abstract class Stmt {
   // < stmt-var
   // > stmt-while
   static class While extends Stmt {
-    While(Expr condition, Stmt body) {
+    While(Token keyword, Expr condition, Stmt body) {
+      this.keyword = keyword;
       this.condition = condition;
       this.body = body;
     }
@@ -186,11 +187,28 @@ abstract class Stmt {
       return visitor.visitWhileStmt(this);
     }
 
+    final Token keyword;
     final Expr condition;
     final Stmt body;
   }
   // < stmt-while
 
+  // 插桩模式（--instrument）下由 NodeCounters 分配的节点编号，未编号时为 -1
+  int nodeId = -1;
+
+  // Parser 写入的语句第一个 token 的行号，供按语句报告的工具（如 --allocations）使用
+  int line;
+
+  /**
+   * 接受访问者方法
+   * 
+   * 访问者模式的核心方法，每个具体语句类都需要实现此方法，
+   * 调用访问者对应的 visit 方法来处理自己。
+   * 
+   * @param visitor 访问者对象
+   * @param <R>     返回类型
+   * @return 访问者处理后的结果
+   */
   abstract <R> R accept(Visitor<R> visitor);
 }
 // < Appendix II stmt
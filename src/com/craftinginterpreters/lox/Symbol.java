@@ -0,0 +1,90 @@
+package com.craftinginterpreters.lox;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 驻留（intern）后的标识符
+ *
+ * 扫描器为每个标识符（以及 this、super）取得唯一的 Symbol，相同名字的标识符共享同一个对象。
+ * 因此 Environment、LoxInstance 字段、LoxClass 方法表都可以用 Symbol 作为键：
+ * - 比较键只需要比较引用，不再逐字符 equals
+ * - id 是递增分配的整数，可直接用来定位数组槽位（见 SymbolMap）
+ *
+ * 驻留表只弱引用 Symbol：常驻进程和 javax.script 宿主会不断送来新的名字
+ * （新脚本、Bindings 的键），不再被任何语法树、环境或实例引用的 Symbol 可以被回收，
+ * 对应的表项在下次创建新 Symbol 时清理。同名 Symbol 在仍被引用期间始终是同一个对象，
+ * 回收后再次驻留得到的是新对象和新 id，此时已经没有旧对象可以与之比较。
+ */
+final class Symbol {
+    private static final ConcurrentHashMap<String, Entry> table = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Symbol> cleared = new ReferenceQueue<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // 解释器内部使用的固定名字
+    static final Symbol THIS = intern("this");
+    static final Symbol SUPER = intern("super");
+    static final Symbol INIT = intern("init");
+
+    final String name;
+    final int id;
+
+    private Symbol(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * 驻留表的表项，Symbol 被回收后进入 cleared 队列
+     */
+    private static final class Entry extends WeakReference<Symbol> {
+        final String name;
+
+        Entry(Symbol symbol) {
+            super(symbol, cleared);
+            this.name = symbol.name;
+        }
+    }
+
+    /**
+     * 取得名字对应的唯一 Symbol，不存在时创建
+     *
+     * @param name 标识符名字
+     * @return 驻留后的 Symbol
+     */
+    static Symbol intern(String name) {
+        for (;;) {
+            Entry entry = table.get(name);
+            if (entry != null) {
+                Symbol symbol = entry.get();
+                if (symbol != null)
+                    return symbol;
+                table.remove(name, entry);
+            }
+
+            prune();
+            Symbol symbol = new Symbol(name, nextId.getAndIncrement());
+            // 与其他线程同时创建时以先放入表中的为准
+            if (table.putIfAbsent(name, new Entry(symbol)) == null)
+                return symbol;
+        }
+    }
+
+    /**
+     * 删除已被回收的 Symbol 的表项
+     */
+    private static void prune() {
+        for (Entry entry; (entry = (Entry) cleared.poll()) != null;) {
+            table.remove(entry.name, entry);
+        }
+    }
+
+    // equals 和 hashCode 沿用 Object 的引用语义：同名 Symbol 同时只有一个实例
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,254 @@
+package com.craftinginterpreters.lox;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 以 Symbol 为键的开放寻址哈希表（线性探测）
+ *
+ * 槽位由 Symbol.id 经斐波那契散列直接算出，键比较只比较引用。
+ * 键和值交错存放在同一个数组里（table[2i] 为键，table[2i + 1] 为值），
+ * 命中时键和值通常在同一条缓存行上。
+ * 解释器只会插入和覆盖；删除只用于宿主通过 javax.script Bindings 移除全局变量，
+ * 采用向后移位删除，不留墓碑，查找路径不受影响。
+ * 值允许为 null（例如 class 声明时先 define 为 nil），所以 containsKey 与 get 分开提供。
+ *
+ * 共享模式（全局环境使用）下可以被多个线程同时读写：写入加锁互斥；读取不加锁，
+ * 扩容和删除都在新数组上完成后再整体发布，新键先写值、再以 release 语义写键，
+ * 读取以 acquire 语义读键，因此读到键时一定能读到对应的值，不会看到写了一半的表。
+ * 局部环境和实例字段只在一个线程中使用，走普通读写，没有额外开销。
+ *
+ * @param <V> 值类型
+ */
+final class SymbolMap<V> {
+    private static final int INITIAL_BITS = 3;
+    private static final VarHandle TABLE;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            TABLE = MethodHandles.lookup().findVarHandle(SymbolMap.class, "table", Object[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final boolean shared;
+    // 交错存放的键值对，容量为 table.length / 2
+    private Object[] table;
+    private int shift;
+    private int size;
+
+    SymbolMap() {
+        this(false);
+    }
+
+    /**
+     * @param shared 是否允许多个线程同时读写
+     */
+    SymbolMap(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * 查找键所在的位置
+     *
+     * @return 键在 table 中的下标，不存在时返回 -1
+     */
+    private static int indexOf(Object[] table, int shift, Symbol key) {
+        if (table == null)
+            return -1;
+        int mask = (table.length >> 1) - 1;
+        for (int i = slot(key, shift); ; i = (i + 1) & mask) {
+            Object candidate = table[i << 1];
+            if (candidate == key)
+                return i << 1;
+            if (candidate == null)
+                return -1;
+        }
+    }
+
+    private static int slot(Symbol key, int shift) {
+        return (key.id * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * 共享模式下的查找：以 acquire 语义读取 table 和键
+     */
+    private Object[] sharedTable() {
+        return (Object[]) TABLE.getAcquire(this);
+    }
+
+    private static int sharedIndexOf(Object[] table, Symbol key) {
+        if (table == null)
+            return -1;
+        int mask = (table.length >> 1) - 1;
+        // shift 由表的长度决定，不单独读字段，避免与 table 不一致
+        int shift = 32 - Integer.numberOfTrailingZeros(table.length >> 1);
+        for (int i = slot(key, shift); ; i = (i + 1) & mask) {
+            Object candidate = SLOT.getAcquire(table, i << 1);
+            if (candidate == key)
+                return i << 1;
+            if (candidate == null)
+                return -1;
+        }
+    }
+
+    boolean containsKey(Symbol key) {
+        if (shared)
+            return sharedIndexOf(sharedTable(), key) >= 0;
+        return indexOf(table, shift, key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Symbol key) {
+        if (shared) {
+            Object[] current = sharedTable();
+            int index = sharedIndexOf(current, key);
+            return index >= 0 ? (V) SLOT.getAcquire(current, index + 1) : null;
+        }
+        int index = indexOf(table, shift, key);
+        return index >= 0 ? (V) table[index + 1] : null;
+    }
+
+    void put(Symbol key, V value) {
+        if (shared) {
+            synchronized (this) {
+                insert(key, value);
+            }
+        } else {
+            insert(key, value);
+        }
+    }
+
+    private void insert(Symbol key, V value) {
+        if (table == null)
+            publish(new Object[2 << INITIAL_BITS]);
+
+        int mask = (table.length >> 1) - 1;
+        int i = slot(key, shift);
+        while (table[i << 1] != null) {
+            if (table[i << 1] == key) {
+                store((i << 1) + 1, value);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // 先写值再发布键，并发读取者读到键时值已经就位
+        table[(i << 1) + 1] = value;
+        store(i << 1, key);
+        size++;
+        // 负载因子保持在 1/2 以下，探测序列很短
+        if (size * 4 > table.length)
+            publish(rehash(table, table.length * 2));
+    }
+
+    private void store(int index, Object value) {
+        if (shared) {
+            SLOT.setRelease(table, index, value);
+        } else {
+            table[index] = value;
+        }
+    }
+
+    /**
+     * 删除键，之后探测链上的键依次前移填补空位
+     *
+     * 共享模式下在副本上删除再发布，并发读取者不会因为键被移动而漏掉它。
+     *
+     * @return 被删除的值，键不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(Symbol key) {
+        if (shared) {
+            synchronized (this) {
+                if (indexOf(table, shift, key) < 0)
+                    return null;
+                Object[] copy = table.clone();
+                V old = removeFrom(copy, key);
+                publish(copy);
+                return old;
+            }
+        }
+        return removeFrom(table, key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeFrom(Object[] table, Symbol key) {
+        int index = indexOf(table, shift, key);
+        if (index < 0)
+            return null;
+        V old = (V) table[index + 1];
+
+        int mask = (table.length >> 1) - 1;
+        int hole = index >> 1;
+        for (int i = (hole + 1) & mask; table[i << 1] != null; i = (i + 1) & mask) {
+            // 键 i 的起始槽位不在 (hole, i] 区间内时，才能前移到 hole
+            int home = slot((Symbol) table[i << 1], shift);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole << 1] = table[i << 1];
+                table[(hole << 1) + 1] = table[(i << 1) + 1];
+                hole = i;
+            }
+        }
+        table[hole << 1] = null;
+        table[(hole << 1) + 1] = null;
+        size--;
+        return old;
+    }
+
+    /**
+     * 当前所有键的快照
+     */
+    Symbol[] keys() {
+        Object[] current = shared ? sharedTable() : table;
+        if (current == null)
+            return new Symbol[0];
+        int count = 0;
+        for (int i = 0; i < current.length; i += 2) {
+            if (current[i] != null)
+                count++;
+        }
+        Symbol[] result = new Symbol[count];
+        int n = 0;
+        for (int i = 0; i < current.length && n < count; i += 2) {
+            if (current[i] != null)
+                result[n++] = (Symbol) current[i];
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 换上新表；共享模式下以 release 语义发布，读取者看到的新表内容完整
+     */
+    private void publish(Object[] newTable) {
+        shift = 32 - Integer.numberOfTrailingZeros(newTable.length >> 1);
+        if (shared) {
+            TABLE.setRelease(this, newTable);
+        } else {
+            table = newTable;
+        }
+    }
+
+    private static Object[] rehash(Object[] oldTable, int length) {
+        Object[] newTable = new Object[length];
+        int mask = (length >> 1) - 1;
+        int shift = 32 - Integer.numberOfTrailingZeros(length >> 1);
+        for (int j = 0; j < oldTable.length; j += 2) {
+            Object key = oldTable[j];
+            if (key == null)
+                continue;
+            int i = slot((Symbol) key, shift);
+            while (newTable[i << 1] != null)
+                i = (i + 1) & mask;
+            newTable[i << 1] = key;
+            newTable[(i << 1) + 1] = oldTable[j + 1];
+        }
+        return newTable;
+    }
+}
@@ -20,6 +20,9 @@ class Token {
     // Token 所在的源代码行号，用于错误报告
     final int line;
 
+    // 驻留后的标识符：仅对 IDENTIFIER、THIS、SUPER 有值，其他类型为 null
+    final Symbol symbol;
+
     /**
      * 构造一个 Token
      * 
@@ -33,6 +36,11 @@ class Token {
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = isName(type) ? Symbol.intern(lexeme) : null;
+    }
+
+    private static boolean isName(TokenType type) {
+        return type == TokenType.IDENTIFIER || type == TokenType.THIS || type == TokenType.SUPER;
     }
 
     /**
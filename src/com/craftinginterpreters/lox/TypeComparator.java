@@ -15,12 +15,19 @@ package com.craftinginterpreters.lox;
  *    - 按类型优先级：nil < boolean < number < string
  *    - 例如：nil < false < true < -100 < 0 < 100 < "a" < "z"
  * 
- * 3. 特殊情况：
+ * 3. 字符串可能以 LoxRope 表示，比较前先展开为 String
+ * 
+ * 4. 特殊情况：
  *    - 任何值与 nil 比较时，nil 总是较小（除了 nil == nil）
  *    - 数字与字符串比较时，所有数字都小于所有字符串
  */
 public class TypeComparator {
     
+    /**
+     * 异类型且无法转换为数字时 compareOrdered 的返回值，表示不可比较
+     */
+    private static final int INCOMPARABLE = Integer.MIN_VALUE;
+    
     /**
      * 比较两个对象的大小
      * 
@@ -30,6 +37,36 @@ public class TypeComparator {
      * @throws RuntimeError 如果比较过程中发生错误
      */
     public static int compare(Object left, Object right) {
+        int result = compareOrdered(left, right);
+        
+        // 数字转换失败，返回0表示不可比较（所有比较操作将返回false）
+        return result == INCOMPARABLE ? 0 : result;
+    }
+    
+    /**
+     * 比较入口，四个比较操作共用
+     * 
+     * 数字与数字、字符串与字符串是最常见的情况，在确定类型优先级之前直接处理；
+     * 其余情况交给 compareSlow。
+     * 
+     * @return 比较结果，或 INCOMPARABLE 表示不可比较
+     */
+    private static int compareOrdered(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return Double.compare((Double) left, (Double) right);
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        return compareSlow(left, right);
+    }
+    
+    /**
+     * 非快速路径的比较：LoxRope、布尔值、nil 以及异类型比较
+     */
+    private static int compareSlow(Object left, Object right) {
+        left = LoxRope.flatten(left);
+        right = LoxRope.flatten(right);
         TypePriority leftType = TypePriority.getTypePriority(left);
         TypePriority rightType = TypePriority.getTypePriority(right);
         
@@ -39,13 +76,7 @@ public class TypeComparator {
         }
         
         // 不同类型，尝试数字转换比较
-        Integer numericResult = compareAsNumbers(left, right);
-        if (numericResult != null) {
-            return numericResult;
-        }
-        
-        // 数字转换失败，返回0表示不可比较（所有比较操作将返回false）
-        return 0;
+        return compareAsNumbers(left, right);
     }
     
     /**
@@ -87,14 +118,31 @@ public class TypeComparator {
     }
     
     /**
-     * 尝试将对象转换为数字
+     * 判断对象能否转换为数字
      * 
      * @param value 要转换的对象
-     * @return 转换成功返回 Double，失败返回 null
+     * @return nil 和无法解析的字符串返回 false
      */
-    private static Double tryConvertToNumber(Object value) {
-        if (value == null) return null;
+    private static boolean isConvertibleToNumber(Object value) {
+        if (value instanceof Double || value instanceof Boolean) {
+            return true;
+        }
+        
+        if (value instanceof String) {
+            // 转换结果（包括转换失败）会被缓存，失败时不抛异常
+            return NumericStringCache.lookup((String) value).isNumber;
+        }
         
+        return false; // nil 和其他类型无法转换
+    }
+    
+    /**
+     * 将对象转换为数字，调用前需先通过 isConvertibleToNumber 检查
+     * 
+     * @param value 要转换的对象
+     * @return 转换结果
+     */
+    private static double toNumber(Object value) {
         if (value instanceof Double) {
             return (Double) value;
         }
@@ -104,18 +152,8 @@ public class TypeComparator {
             return ((Boolean) value) ? 1.0 : 0.0;
         }
         
-        if (value instanceof String) {
-            String str = ((String) value).trim();
-            if (str.isEmpty()) return null; // 空字符串无法转换
-            
-            try {
-                return Double.parseDouble(str);
-            } catch (NumberFormatException e) {
-                return null; // 转换失败
-            }
-        }
-        
-        return null; // 其他类型无法转换
+        // 字符串：这里一定命中 isConvertibleToNumber 留下的缓存
+        return NumericStringCache.lookup((String) value).value;
     }
     
     /**
@@ -123,17 +161,14 @@ public class TypeComparator {
      * 
      * @param left 左操作数
      * @param right 右操作数  
-     * @return 转换成功返回比较结果，失败返回 null 表示不可比较
+     * @return 转换成功返回比较结果，失败返回 INCOMPARABLE 表示不可比较
      */
-    private static Integer compareAsNumbers(Object left, Object right) {
-        Double leftNum = tryConvertToNumber(left);
-        Double rightNum = tryConvertToNumber(right);
-        
-        if (leftNum == null || rightNum == null) {
-            return null; // 转换失败，不可比较
+    private static int compareAsNumbers(Object left, Object right) {
+        if (!isConvertibleToNumber(left) || !isConvertibleToNumber(right)) {
+            return INCOMPARABLE; // 转换失败，不可比较
         }
         
-        return Double.compare(leftNum, rightNum);
+        return Double.compare(toNumber(left), toNumber(right));
     }
     
     /**
@@ -150,91 +185,35 @@ public class TypeComparator {
     }
     
     /**
-     * 大于比较：left > right
+     * 大于比较：left > right，不可比较时返回 false
      */
     public static boolean greater(Object left, Object right) {
-        TypePriority leftType = TypePriority.getTypePriority(left);
-        TypePriority rightType = TypePriority.getTypePriority(right);
-        
-        // 如果类型相同，使用类型内部的比较逻辑
-        if (leftType == rightType) {
-            return compareWithinType(left, right, leftType) > 0;
-        }
-        
-        // 不同类型，尝试数字转换比较
-        Integer numericResult = compareAsNumbers(left, right);
-        if (numericResult != null) {
-            return numericResult > 0;
-        }
-        
-        // 数字转换失败，返回 false
-        return false;
+        int result = compareOrdered(left, right);
+        return result != INCOMPARABLE && result > 0;
     }
     
     /**
-     * 大于等于比较：left >= right
+     * 大于等于比较：left >= right，不可比较时返回 false
      */
     public static boolean greaterEqual(Object left, Object right) {
-        TypePriority leftType = TypePriority.getTypePriority(left);
-        TypePriority rightType = TypePriority.getTypePriority(right);
-        
-        // 如果类型相同，使用类型内部的比较逻辑
-        if (leftType == rightType) {
-            return compareWithinType(left, right, leftType) >= 0;
-        }
-        
-        // 不同类型，尝试数字转换比较
-        Integer numericResult = compareAsNumbers(left, right);
-        if (numericResult != null) {
-            return numericResult >= 0;
-        }
-        
-        // 数字转换失败，返回 false
-        return false;
+        int result = compareOrdered(left, right);
+        return result != INCOMPARABLE && result >= 0;
     }
     
     /**
-     * 小于比较：left < right
+     * 小于比较：left < right，不可比较时返回 false
      */
     public static boolean less(Object left, Object right) {
-        TypePriority leftType = TypePriority.getTypePriority(left);
-        TypePriority rightType = TypePriority.getTypePriority(right);
-        
-        // 如果类型相同，使用类型内部的比较逻辑
-        if (leftType == rightType) {
-            return compareWithinType(left, right, leftType) < 0;
-        }
-        
-        // 不同类型，尝试数字转换比较
-        Integer numericResult = compareAsNumbers(left, right);
-        if (numericResult != null) {
-            return numericResult < 0;
-        }
-        
-        // 数字转换失败，返回 false
-        return false;
+        int result = compareOrdered(left, right);
+        return result != INCOMPARABLE && result < 0;
     }
     
     /**
-     * 小于等于比较：left <= right
+     * 小于等于比较：left <= right，不可比较时返回 false
      */
     public static boolean lessEqual(Object left, Object right) {
-        TypePriority leftType = TypePriority.getTypePriority(left);
-        TypePriority rightType = TypePriority.getTypePriority(right);
-        
-        // 如果类型相同，使用类型内部的比较逻辑
-        if (leftType == rightType) {
-            return compareWithinType(left, right, leftType) <= 0;
-        }
-        
-        // 不同类型，尝试数字转换比较
-        Integer numericResult = compareAsNumbers(left, right);
-        if (numericResult != null) {
-            return numericResult <= 0;
-        }
-        
-        // 数字转换失败，返回 false
-        return false;
+        int result = compareOrdered(left, right);
+        return result != INCOMPARABLE && result <= 0;
     }
     
     /**
@@ -261,13 +240,9 @@ public class TypeComparator {
     private static String stringify(Object object) {
         if (object == null) return "nil";
         if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return NumberFormatter.format((double) object);
         }
-        if (object instanceof String) {
+        if (LoxRope.isString(object)) {
             return "\"" + object + "\"";
         }
         return object.toString();
@@ -21,6 +21,9 @@ public class TypeComparisonTest {
         // 测试同类型比较（确保向后兼容）
         testSameTypeComparison();
         
+        // 测试数字字符串转换缓存
+        testCachedConversion();
+        
         System.out.println("\n=== 所有测试完成 ===");
     }
     
@@ -105,6 +108,27 @@ public class TypeComparisonTest {
         System.out.println();
     }
     
+    /**
+     * 测试数字字符串转换缓存（重复比较结果应保持一致）
+     */
+    private static void testCachedConversion() {
+        System.out.println("5. 测试数字字符串转换缓存:");
+        
+        // 同一字符串重复比较，第二次命中缓存
+        testComparison("42", 41.0, "字符串 42 vs 数字 41 (首次)");
+        testComparison("42", 41.0, "字符串 42 vs 数字 41 (缓存命中)");
+        testComparison("abc", 1.0, "字符串 abc vs 数字 1 (首次)");
+        testComparison("abc", 1.0, "字符串 abc vs 数字 1 (缓存命中)");
+        
+        // Double.parseDouble 支持的其他格式
+        testComparison(" 1e3 ", 999.0, "字符串 1e3 vs 数字 999");
+        testComparison("0x10", 15.0, "十六进制字符串 0x10 vs 数字 15 (不是合法浮点数)");
+        testComparison("0x1p4", 15.0, "十六进制浮点字符串 0x1p4 vs 数字 15");
+        testComparison("1e", 1.0, "不完整指数 1e vs 数字 1");
+        
+        System.out.println();
+    }
+    
     /**
      * 执行单个比较测试
      */
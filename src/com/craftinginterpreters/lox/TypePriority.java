@@ -53,7 +53,7 @@ public enum TypePriority {
         if (value instanceof Double) {
             return NUMBER;
         }
-        if (value instanceof String) {
+        if (value instanceof String || value instanceof LoxRope) {
             return STRING;
         }
         
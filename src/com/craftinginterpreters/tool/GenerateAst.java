@@ -15,6 +15,7 @@ public class GenerateAst {
         String outputDir = args[0];
         // > call-define-ast
         defineAst(outputDir, "Expr", Arrays.asList(
+                "ArrayLiteral : Token bracket, List<Expr> elements",
                 // > Statements and State assign-expr
                 "Assign   : Token name, Expr value",
                 // < Statements and State assign-expr
@@ -26,6 +27,8 @@ public class GenerateAst {
                 "Get      : Expr object, Token name",
                 // < Classes get-ast
                 "Grouping : Expr expression",
+                "Index    : Expr object, Token bracket, Expr index",
+                "IndexSet : Expr object, Token bracket, Expr index, Expr value",
                 "Literal  : Object value",
                 // > Control Flow logical-ast
                 "Logical  : Expr left, Token operator, Expr right",
@@ -87,7 +90,7 @@ public class GenerateAst {
                  */
                 // > Control Flow while-ast
                 "Var        : Token name, Expr initializer",
-                "While      : Expr condition, Stmt body"
+                "While      : Token keyword, Expr condition, Stmt body"
         // < Control Flow while-ast
         ));
         // < Statements and State stmt-ast
@@ -128,8 +131,36 @@ public class GenerateAst {
         // < nested-classes
         // > base-accept-method
 
-        // The base accept() method.
+        // Node id assigned by NodeCounters in --instrument mode.
         writer.println();
+        writer.println("  int nodeId = -1;");
+
+        // Scope distance written by Resolver; -1 means a global variable.
+        if (baseName.equals("Expr")) {
+            writer.println();
+            writer.println("  int depth = -1;");
+        }
+
+        // Line of the statement's first token, written by Parser.
+        if (baseName.equals("Stmt")) {
+            writer.println();
+            writer.println("  int line;");
+        }
+
+        // The base accept() method, documented after the fields so the
+        // Javadoc stays attached to the method.
+        writer.println();
+        writer.println("  /**");
+        writer.println("   * 接受访问者方法");
+        writer.println("   * ");
+        writer.println("   * 访问者模式的核心方法，每个具体" + (baseName.equals("Expr") ? "表达式" : "语句")
+                + "类都需要实现此方法，");
+        writer.println("   * 调用访问者对应的 visit 方法来处理自己。");
+        writer.println("   * ");
+        writer.println("   * @param visitor 访问者对象");
+        writer.println("   * @param <R>     返回类型");
+        writer.println("   * @return 访问者处理后的结果");
+        writer.println("   */");
         writer.println("  abstract <R> R accept(Visitor<R> visitor);");
 
         // < base-accept-method
@@ -21,7 +21,12 @@ public class Console {
                 for (int i = 0; i < arguments.size(); i++) {
                     if (i > 0)
                         sb.append(" ");
-                    sb.append(stringify(arguments.get(i)));
+                    Object argument = arguments.get(i);
+                    if (argument instanceof Double) {
+                        NumberFormatter.appendTo(sb, (double) argument);
+                    } else {
+                        sb.append(stringify(argument));
+                    }
                 }
                 System.out.println(sb.toString());
                 return null; // console.log 返回 undefined
@@ -48,11 +53,7 @@ public class Console {
         if (value == null)
             return "undefined";
         if (value instanceof Double) {
-            String text = value.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return NumberFormatter.format((double) value);
         }
         if (value instanceof Boolean) {
             return value.toString();
@@ -93,7 +93,8 @@ abstract class Expr {
      * ObjectLiteral expr
      */
     static class ObjectLiteral extends Expr {
-        ObjectLiteral(List<Property> properties) {
+        ObjectLiteral(Token brace, List<Property> properties) {
+            this.brace = brace;
             this.properties = properties;
         }
 
@@ -102,6 +103,7 @@ abstract class Expr {
             return visitor.visitObjectLiteralExpr(this);
         }
 
+        final Token brace;
         final List<Property> properties;
     }
 
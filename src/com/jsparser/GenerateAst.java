@@ -26,7 +26,7 @@ public class GenerateAst {
                 // ========== 字面量 ==========
                 "Literal        : Object value",                                    // 字面量: null, true, false, 数字, 字符串
                 "ArrayLiteral   : List<Expr> elements",                             // 数组字面量: [1, 2, 3]
-                "ObjectLiteral  : List<Property> properties",                       // 对象字面量: { key: value }
+                "ObjectLiteral  : Token brace, List<Property> properties",          // 对象字面量: { key: value }
 
                 // ========== 标识符和 this ==========
                 "Identifier     : Token name",                                      // 标识符: foo, bar
@@ -50,6 +50,17 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     final Environment globals = new Environment();
     private Environment environment = globals;
     private final Map<Expr, Integer> locals = new HashMap<>();
+    // 内存配额（--max-memory）：累计估算的分配字节数，超出时报运行时错误而不是 OutOfMemoryError
+    private long memoryLimit = Long.MAX_VALUE;
+    private long allocated = 0;
+    // 估算的对象大小（64 位 JVM、压缩指针）
+    // LoxObj 加上 HashMap 及其 16 槽的桶数组；每个属性一个 Node 并摊上桶数组扩容
+    private static final long OBJECT_BYTES = 144;
+    private static final long PROPERTY_BYTES = 40;
+    // 函数调用创建的 Environment，结构与对象相同
+    private static final long ENVIRONMENT_BYTES = 144;
+    // String 对象和字符数组的对象头，字符按两字节计
+    private static final long STRING_HEADER_BYTES = 40;
 
     Interpreter() {
         Map<String, Object> console = new HashMap<>();
@@ -65,7 +76,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 for (int i = 0; i < arguments.size(); i++) {
                     if (i > 0)
                         sb.append(" ");
-                    sb.append(stringify(arguments.get(i)));
+                    Object argument = arguments.get(i);
+                    if (argument instanceof Double) {
+                        NumberFormatter.appendTo(sb, (double) argument);
+                    } else {
+                        sb.append(stringify(argument));
+                    }
                 }
                 System.out.println(sb.toString());
                 return null;
@@ -122,11 +138,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             return "nil";
 
         if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return NumberFormatter.format((double) object);
         }
 
         return object.toString();
@@ -136,6 +148,25 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         stmt.accept(this);
     }
 
+    /**
+     * 设置内存配额，同时清零已记的分配量
+     *
+     * @param maxBytes 允许分配的字节数，Long.MAX_VALUE 表示不限
+     */
+    void setMemoryLimit(long maxBytes) {
+        memoryLimit = maxBytes;
+        allocated = 0;
+    }
+
+    /**
+     * 记入一次分配，超出配额时在 at 的位置报错
+     */
+    private void allocate(Token at, long bytes) {
+        allocated += bytes;
+        if (allocated > memoryLimit)
+            throw new RuntimeError(at, "Memory quota exceeded.");
+    }
+
     void interpret(List<Stmt> statements) {
         try {
             for (Stmt statement : statements) {
@@ -209,6 +240,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 }
 
                 if (left instanceof String && right instanceof String) {
+                    allocate(expr.operator, STRING_HEADER_BYTES
+                            + 2L * (((String) left).length() + ((String) right).length()));
                     return (String) left + (String) right;
                 }
                 // 替换部分开始
@@ -249,6 +282,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     function.arity() + " arguments but got " +
                     arguments.size() + ".");
         }
+        if (function instanceof LoxFunction)
+            allocate(expr.paren, ENVIRONMENT_BYTES);
         return function.call(this, arguments);
     }
 
@@ -394,6 +429,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
      */
     @Override
     public Object visitObjectLiteralExpr(ObjectLiteral expr) {
+        allocate(expr.brace, OBJECT_BYTES + PROPERTY_BYTES * expr.properties.size());
         Map<String, Object> object = new HashMap<>();
         for (Property prop : expr.properties) {
             // 获取属性名
@@ -42,19 +42,26 @@ public class Lox {
     public static void main(String[] args) throws IOException {
         // 解析命令行参数
         int fileArgIndex = 0;
+        int optionArgs = 0;
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("--ast")) {
                 astOnly = true;
+                optionArgs++;
+            } else if (args[i].equals("--max-memory") && i + 1 < args.length
+                    && args[i + 1].matches("\\d+")) {
+                // 一次运行允许分配的字节数
+                interpreter.setMemoryLimit(Long.parseLong(args[++i]));
+                optionArgs += 2;
             } else {
                 fileArgIndex = i;
                 break;
             }
         }
 
-        int remainingArgs = args.length - (astOnly ? 1 : 0);
+        int remainingArgs = args.length - optionArgs;
 
         if (remainingArgs > 1) {
-            System.out.println("Usage: jlox [--ast] [script]");
+            System.out.println("Usage: jlox [--ast] [--max-memory <bytes>] [script]");
             System.exit(64);
         } else if (remainingArgs == 1) {
             runFile(args[fileArgIndex]);
@@ -0,0 +1,58 @@
+package com.jsparser;
+
+/**
+ * 数字的字符串格式化（console.log 与 stringify 共用）
+ *
+ * 输出规则与原先的 "Double.toString() 再去掉结尾 .0" 完全一致：
+ * - 整数值且在 Double.toString 不使用科学计数法的范围内（|x| < 1e7），直接按 long 输出
+ * - 其余情况（小数、大数、NaN、Infinity）使用最短往返表示，即 Double.toString 的结果
+ *
+ * 整数快速路径不会产生中间字符串，appendTo 可以直接写入已有的 StringBuilder。
+ */
+final class NumberFormatter {
+    // Double.toString 对 [1e-3, 1e7) 之外的值改用科学计数法，这之外的整数不能按 long 输出
+    private static final double MAX_PLAIN_INTEGRAL = 1e7;
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * 将数字格式化为字符串
+     *
+     * @param value 数字
+     * @return 字符串表示，如 3、-0、2.5、1.0E7
+     */
+    static String format(double value) {
+        if (isPlainIntegral(value)) {
+            if (isNegativeZero(value))
+                return "-0";
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * 将数字直接追加到 StringBuilder 中，不创建中间字符串
+     *
+     * @param sb    目标 StringBuilder
+     * @param value 数字
+     * @return 传入的 sb，便于链式调用
+     */
+    static StringBuilder appendTo(StringBuilder sb, double value) {
+        if (isPlainIntegral(value)) {
+            if (isNegativeZero(value))
+                return sb.append("-0");
+            return sb.append((long) value);
+        }
+        return sb.append(value);
+    }
+
+    private static boolean isPlainIntegral(double value) {
+        return value > -MAX_PLAIN_INTEGRAL && value < MAX_PLAIN_INTEGRAL
+                && value == (double) (long) value;
+    }
+
+    private static boolean isNegativeZero(double value) {
+        return value == 0.0 && Double.doubleToRawLongBits(value) != 0L;
+    }
+}
@@ -120,6 +120,7 @@ public class Parser {
             return new Expr.Grouping(expr);
         }
         if (match(TokenType.LEFT_BRACE)) {
+            Token brace = previous();
             List<Property> properties = new ArrayList<>();
             if (!check(TokenType.RIGHT_BRACE)) {
                 do {
@@ -137,7 +138,7 @@ public class Parser {
                 } while (match(TokenType.COMMA) && !isAtEnd() && !check(TokenType.RIGHT_BRACE));
             }
             consume(TokenType.RIGHT_BRACE, "Expect '}' after object literal.");
-            return new Expr.ObjectLiteral(properties);
+            return new Expr.ObjectLiteral(brace, properties);
         }
         if (match(TokenType.FUNCTION)) {
             return FunctionExpression();